@@ -14,6 +14,12 @@ public class Config {
 		public static final boolean shouldCrop = true;
 		public static final double minCropPercent = 0.7;
 		
+		// Corner movement ignored when revalidating - px
+		public static final double cornerTolerance = 2;
+		
+		// Lens calibration properties with fx, fy, cx, cy, k1, k2, p1, p2, k3, or empty
+		public static final String calibration = "";
+		
 		// Video
 		public static final int width = 640;
 		public static final int height = 480;
@@ -21,8 +27,48 @@ public class Config {
 		public static final boolean useWebcam = true;
 		public static final String source = "./src/video4.mov";
 		
+		// Video file decoding ahead, throttled to the native fps
+		public static final boolean prefetch = true;
+		public static final boolean throttle = true;
+		public static final int prefetchFrames = 8;
+		
+		// Latency
+		public static final int captureDelay = 60;
+		
 	}
 
+	/**
+	 * Settings for fusing several cameras into one field canvas.
+	 */
+	public static class Fusion {
+		
+		// Toggle
+		public static final boolean enable = false;
+		
+		// Sources - webcam index or video path
+		public static final String[] sources = { "./src/video4.mov", "./src/video4.mov" };
+		
+		// Canvas - px
+		public static final int width = 1280;
+		public static final int height = 480;
+		
+		// Video file rate - fps
+		public static final int fps = 30;
+		
+		// Camera corners as TL, TR, BR, BL x, y pairs per source
+		public static final double[][] corners = {
+			{ 0, 0, 640, 0, 640, 480, 0, 480 },
+			{ 0, 0, 640, 0, 640, 480, 0, 480 },
+		};
+		
+		// Canvas points of the camera corners per source
+		public static final double[][] field = {
+			{ 0, 0, 704, 0, 704, 480, 0, 480 },
+			{ 576, 0, 1280, 0, 1280, 480, 576, 480 },
+		};
+		
+	}
+	
 	/**
 	 * Settings for the movement client.
 	 */
@@ -38,7 +84,11 @@ public class Config {
 		// Server
 		public static final String ip = "192.168.43.44";
 		public static final int port = 59898;
-		
+
+		// Latency
+		public static final double latencyWeight = 0.125;
+		public static final boolean predict = true;
+
 		// Speeds
 		public static final int turnSpeed = 200;
 		public static final int turnSlowSpeed = 120;
@@ -65,6 +115,28 @@ public class Config {
 		// Thresholds
 		public static final int slowThreshold = 40;
 		
+		// Profile - deg/s, deg/s^2
+		public static final boolean profile = false;
+		public static final int profileMinSpeed = 80;
+		public static final int profileMinTurnSpeed = 60;
+		public static final int maxAcceleration = 1500;
+		public static final int maxDeceleration = 900;
+		public static final int turnAcceleration = 1500;
+		public static final int turnDeceleration = 1200;
+		
+		// Pursuit
+		public static final boolean pursuit = false;
+		public static final int lookahead = 60;
+		public static final int spinAngle = 60;
+		
+		// On-brick path
+		public static final boolean onBrick = false;
+		public static final int arriveDistance = 12;
+		public static final int poseInterval = 100;
+		
+		// Keepalive while paused, below the brick watchdog - ms
+		public static final int keepInterval = 100;
+		
 		// Triangle
 		public static final double triangleScale = 2.2;
 		
@@ -101,6 +173,22 @@ public class Config {
 		
 	}
 	
+	/**
+	 * Settings for the vehicle tracker.
+	 */
+	public static class Tracker {
+		
+		// Noise - px, deg
+		public static final double positionNoise = 2;
+		public static final double accelerationNoise = 150;
+		public static final double headingNoise = 3;
+		public static final double turnNoise = 200;
+		
+		// Dropouts
+		public static final int maxMissed = 8;
+		
+	}
+	
 	/**
 	 * Settings for the graph.
 	 */
@@ -109,6 +197,13 @@ public class Config {
 		// Toggle
 		public static final boolean enable = true;
 		
+		// Spatial index cell size - px
+		public static final double cellSize = 64;
+		
+		// Plan cache tolerance of ball and obstacle movement, and robot movement - px
+		public static final double tolerance = 8;
+		public static final double robotTolerance = 32;
+		
 	}
 
 	/**
@@ -139,10 +234,163 @@ public class Config {
 		
 		// Sizes - 3.23 px/cm
 		public static final double carHeight = 80;
+		public static final double ballHeight = 20;
 		public static final double cameraHeight = 545;
+		public static final double pixelsPerCm = 3.23;
+		
+		// Wheels - cm
+		public static final double wheelDiameter = 5.6;
+		public static final double wheelBase = 12;
+		public static final int acceleration = 3000;
 		
 	}
 
+	/**
+	 * Settings for the loopback simulator.
+	 */
+	public static class Simulator {
+		
+		// Timing - ms
+		public static final int step = 5;
+		public static final int latency = 20;
+		public static final int stallInterval = 0;
+		
+		// Start pose - px, deg
+		public static final double startX = 320;
+		public static final double startY = 240;
+		public static final double startRotation = 0;
+		
+	}
+	
+	/**
+	 * Settings for the detector scheduler.
+	 */
+	public static class Scheduler {
+		
+		// Intervals - ms, 0 = every frame
+		public static final int obstacleInterval = 1000;
+		public static final int targetsInterval = 250;
+		public static final int vehicleInterval = 0;
+		public static final int cropperInterval = 10000;
+		
+		// Report - ms, 0 = disabled
+		public static final int reportInterval = 10000;
+		
+	}
+	
+	/**
+	 * Settings for the frame processing stages.
+	 */
+	public static class Pipeline {
+		
+		// Buffers - frames in flight, frames waiting per stage
+		public static final int frames = 6;
+		public static final int capacity = 1;
+		
+		// Drop the oldest waiting frame instead of waiting for the stage, so control only sees the freshest frame
+		public static final boolean dropRectify = false;
+		public static final boolean dropTrack = true;
+		public static final boolean dropPresent = true;
+		
+	}
+	
+	/**
+	 * Settings for the adaptive quality controller.
+	 */
+	public static class Quality {
+		
+		// Toggle
+		public static final boolean adapt = true;
+		
+		// Budget - fps, frames
+		public static final int targetFps = 30;
+		public static final int window = 15;
+		
+		// Restore below this share of the budget
+		public static final double headroom = 0.6;
+		
+	}
+	
+	/**
+	 * Settings for the video recorder.
+	 */
+	public static class Recorder {
+		
+		// Buffers - frame pairs
+		public static final int poolSize = 8;
+		
+		// Drop the oldest queued frame instead of the newest when full
+		public static final boolean dropOldest = false;
+		
+		// Output
+		public static final double fps = 30;
+		public static final String directory = "./";
+		
+	}
+	
+	/**
+	 * Settings for the binary run log.
+	 */
+	public static class Log {
+		
+		// Toggle
+		public static final boolean enable = false;
+		
+		// Sizes - bytes, entries
+		public static final int size = 64 * 1024 * 1024;
+		public static final int indexEntries = 65536;
+		
+		// Index - ms between entries
+		public static final int indexInterval = 250;
+		
+		// Output
+		public static final String directory = "./logs/";
+		
+	}
+	
+	/**
+	 * Settings for the stage tracer.
+	 */
+	public static class Trace {
+		
+		// Toggle
+		public static final boolean enable = true;
+		
+		// Ring buffer - spans
+		public static final int capacity = 16384;
+		
+		// Output
+		public static final String directory = "./";
+		
+	}
+	
+	/**
+	 * Settings for the console logger.
+	 */
+	public static class Logger {
+		
+		// Buffer - entries
+		public static final int capacity = 4096;
+		
+		// Drain interval - ms
+		public static final int period = 5;
+		
+	}
+	
+	/**
+	 * Settings for the local metrics and control endpoint.
+	 */
+	public static class Monitor {
+		
+		// Toggle
+		public static final boolean enable = true;
+		
+		// Address, local only by default
+		public static final String host = "127.0.0.1";
+		public static final int port = 8090;
+		
+	}
+	
 	/**
 	 * Settings for the GUI preview.
 	 */
@@ -19,6 +19,7 @@ public class Graph {
     public final double wallDistance = 80;
     public double crossDistance;
     public final double offset = 12; //Change this to something real.
+    private Grid grid = new Grid(Config.Graph.cellSize);
     
     public void run(Point[] obstacles, ArrayList<Point> balls, Point robot, int width, int height) {
     	this.balls = balls;
@@ -52,41 +53,40 @@ public class Graph {
 
     public void findClosest() {
     	if (balls.isEmpty()) return;
-    	ArrayList<ArrayList<Point>> paths = new ArrayList<ArrayList<Point>>();
-    	ArrayList<Double> lengths = new ArrayList<Double>();
+    	ArrayList<Point> shortest = null;
+    	boolean shortestReverse = false;
+    	double shortestLength = Double.MAX_VALUE;
     	
     	towardsGoal = false;
-    	reverse = false;
     	path.clear();
-        Point node = new Point();
-
-        for (int i = 0; i < balls.size(); i++) {
-        		ArrayList<Point> tempPath = new ArrayList<Point>();
-                node = balls.get(i);
-                paths.add(tempPath);
-                crosses(robot, node, paths.get(i));
-                wall(node, paths.get(i));
-                obstacle(node, paths.get(i));
-                paths.get(i).add(node);
-        }
-        double shortestLength = Double.MAX_VALUE;
-        int shortestPath = 0;
-        
-        for(int i = 0; i<paths.size(); i++) {
-        	double length = 0;
-        	length += calcDistance(robot, paths.get(i).get(0));
-        	for (int j = 1; j<paths.get(i).size(); j++) {
-        		length += calcDistance(paths.get(i).get(j-1), paths.get(i).get(j));
-        	}
-        	lengths.add(length);
-        	if(lengths.get(i)<shortestLength) {
-        		shortestLength = lengths.get(i);
-        		shortestPath = i;
-        	}
-        }
-        for (int i = 0; i<paths.get(shortestPath).size(); i++){
-        	path.add(paths.get(shortestPath).get(i));
-        }  
+    	
+    	grid.build(balls, width, height);						//index the balls to visit them closest first
+    	grid.search(robot);
+    	
+    	for (Point ball = grid.next(); ball != null; ball = grid.next()) {
+    		// The detours move the ball at most 2 offsets, so no path is shorter than this.
+    		if (grid.distance(ball) - 2 * offset >= shortestLength) break;
+    		
+    		ArrayList<Point> tempPath = new ArrayList<Point>();
+    		Point node = new Point(ball.x, ball.y);
+    		reverse = false;
+    		crosses(robot, node, tempPath);
+    		wall(node, tempPath);
+    		obstacle(node, tempPath);
+    		tempPath.add(node);
+    		
+    		double length = calcDistance(robot, tempPath.get(0));
+    		for (int j = 1; j<tempPath.size(); j++) {
+    			length += calcDistance(tempPath.get(j-1), tempPath.get(j));
+    		}
+    		if (length<shortestLength) {
+    			shortestLength = length;
+    			shortest = tempPath;
+    			shortestReverse = reverse;
+    		}
+    	}
+    	reverse = shortestReverse;
+    	path.addAll(shortest);
     }
     
     public void findGoal(int side) {
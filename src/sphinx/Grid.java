@@ -0,0 +1,212 @@
+package sphinx;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.opencv.core.Point;
+
+public class Grid {
+
+	/**
+	 * The side length of a cell.
+	 *
+	 * @var double
+	 */
+	private double cell;
+
+	/**
+	 * The amount of columns and rows.
+	 *
+	 * @var int
+	 */
+	private int columns, rows;
+
+	/**
+	 * The points of each cell, row by row.
+	 *
+	 * @var ArrayList<ArrayList<Point>>
+	 */
+	private ArrayList<ArrayList<Point>> cells = new ArrayList<ArrayList<Point>>();
+
+	/**
+	 * The visited points closest first as <distance, index> pairs.
+	 *
+	 * @var PriorityQueue<double[]>
+	 */
+	private PriorityQueue<double[]> queue = new PriorityQueue<double[]>(16, new Comparator<double[]>() {
+		@Override
+		public int compare(double[] a, double[] b) {
+			return Double.compare(a[0], b[0]);
+		}
+	});
+
+	/**
+	 * The visited points referenced by the queue.
+	 *
+	 * @var ArrayList<Point>
+	 */
+	private ArrayList<Point> visited = new ArrayList<Point>();
+
+	/**
+	 * The origin of the current search.
+	 *
+	 * @var Point
+	 */
+	private Point origin;
+
+	/**
+	 * The cell of the origin and the last visited ring around it.
+	 *
+	 * @var int
+	 */
+	private int column, row, ring;
+
+	/**
+	 * Creates the grid with the cell size.
+	 *
+	 * @param cell
+	 */
+	public Grid(double cell) {
+		this.cell = cell;
+	}
+
+	/**
+	 * Index the points on a field of the size.
+	 *
+	 * @param points
+	 * @param width
+	 * @param height
+	 */
+	public void build(List<Point> points, double width, double height) {
+		// Resize the cells to cover the field.
+		this.columns = Math.max(1, (int) Math.ceil(width / this.cell));
+		this.rows = Math.max(1, (int) Math.ceil(height / this.cell));
+		while (this.cells.size() < this.columns * this.rows) {
+			this.cells.add(new ArrayList<Point>());
+		}
+		for (int i = 0; i < this.columns * this.rows; i++) {
+			this.cells.get(i).clear();
+		}
+
+		// Add each point to its cell, clamping points outside the field.
+		for (int i = 0; i < points.size(); i++) {
+			Point point = points.get(i);
+			this.cells.get(this.row(point.y) * this.columns + this.column(point.x)).add(point);
+		}
+	}
+
+	/**
+	 * Start returning the points closest first from the origin.
+	 *
+	 * @param origin
+	 */
+	public void search(Point origin) {
+		this.origin = origin;
+		this.column = this.column(origin.x);
+		this.row = this.row(origin.y);
+		this.ring = -1;
+		this.queue.clear();
+		this.visited.clear();
+	}
+
+	/**
+	 * Returns the next closest point, or null when all were returned.
+	 *
+	 * @return Point
+	 */
+	public Point next() {
+		// Visit rings until the closest visited point is closer than any unvisited point.
+		while (this.ring < 0 || (this.bound() < Double.MAX_VALUE
+			&& (this.queue.isEmpty() || this.queue.peek()[0] > this.bound()))) {
+			this.visit(++this.ring);
+		}
+
+		// Return the closest visited point.
+		double[] closest = this.queue.poll();
+		return closest == null ? null : this.visited.get((int) closest[1]);
+	}
+
+	/**
+	 * Returns the distance of the point from the search origin.
+	 *
+	 * @param point
+	 * @return double
+	 */
+	public double distance(Point point) {
+		return Math.hypot(point.x - this.origin.x, point.y - this.origin.y);
+	}
+
+	/**
+	 * Returns the distance every unvisited point is at least from the origin,
+	 * being the closest side of the visited cells not at the grid border.
+	 * Points outside the field are kept in the border cells, which are only
+	 * reached in the outward direction, so the bound holds for them too.
+	 *
+	 * @return double
+	 */
+	private double bound() {
+		double bound = Double.MAX_VALUE;
+		if (this.column - this.ring > 0) {
+			bound = Math.min(bound, this.origin.x - (this.column - this.ring) * this.cell);
+		}
+		if (this.column + this.ring < this.columns - 1) {
+			bound = Math.min(bound, (this.column + this.ring + 1) * this.cell - this.origin.x);
+		}
+		if (this.row - this.ring > 0) {
+			bound = Math.min(bound, this.origin.y - (this.row - this.ring) * this.cell);
+		}
+		if (this.row + this.ring < this.rows - 1) {
+			bound = Math.min(bound, (this.row + this.ring + 1) * this.cell - this.origin.y);
+		}
+		return bound;
+	}
+
+	/**
+	 * Queue the points of the cells at the ring distance from the origin cell.
+	 *
+	 * @param ring
+	 */
+	private void visit(int ring) {
+		for (int y = this.row - ring; y <= this.row + ring; y++) {
+			// Skip rows outside the grid.
+			if (y < 0 || y >= this.rows) continue;
+
+			// Visit the whole row at the ring edge, otherwise only both ends.
+			int step = (y == this.row - ring || y == this.row + ring) ? 1 : Math.max(1, 2 * ring);
+			for (int x = this.column - ring; x <= this.column + ring; x += step) {
+				// Skip columns outside the grid.
+				if (x < 0 || x >= this.columns) continue;
+
+				// Queue the points of the cell.
+				ArrayList<Point> points = this.cells.get(y * this.columns + x);
+				for (int i = 0; i < points.size(); i++) {
+					this.queue.add(new double[] { this.distance(points.get(i)), this.visited.size() });
+					this.visited.add(points.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the clamped column of the x coordinate.
+	 *
+	 * @param x
+	 * @return int
+	 */
+	private int column(double x) {
+		return Math.min(this.columns - 1, Math.max(0, (int) Math.floor(x / this.cell)));
+	}
+
+	/**
+	 * Returns the clamped row of the y coordinate.
+	 *
+	 * @param y
+	 * @return int
+	 */
+	private int row(double y) {
+		return Math.min(this.rows - 1, Math.max(0, (int) Math.floor(y / this.cell)));
+	}
+
+}
@@ -0,0 +1,212 @@
+package sphinx;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Logger {
+
+	/**
+	 * The entry kinds.
+	 *
+	 * @var int
+	 */
+	private static final int TEXT = 0, VALUE = 1, ELAPSED = 2, ERROR = 3;
+
+	/**
+	 * The kinds of the entries.
+	 *
+	 * @var int[]
+	 */
+	private static final int[] kinds = new int[Config.Logger.capacity];
+
+	/**
+	 * The messages of the entries, expected to be constants.
+	 *
+	 * @var String[]
+	 */
+	private static final String[] messages = new String[Config.Logger.capacity];
+
+	/**
+	 * The numbers of the entries.
+	 *
+	 * @var long[]
+	 */
+	private static final long[] values = new long[Config.Logger.capacity];
+
+	/**
+	 * The exceptions of the entries.
+	 *
+	 * @var Throwable[]
+	 */
+	private static final Throwable[] errors = new Throwable[Config.Logger.capacity];
+
+	/**
+	 * The position each slot was published for, marking the entry complete.
+	 *
+	 * @var AtomicLongArray
+	 */
+	private static final AtomicLongArray published = new AtomicLongArray(Config.Logger.capacity);
+
+	/**
+	 * The next position to claim.
+	 *
+	 * @var AtomicLong
+	 */
+	private static final AtomicLong claimed = new AtomicLong();
+
+	/**
+	 * The next position to drain.
+	 *
+	 * @var long
+	 */
+	private static volatile long drained = 0;
+
+	/**
+	 * The amount of entries dropped because the buffer was full, and the amount already reported.
+	 *
+	 * @var AtomicLong
+	 */
+	private static final AtomicLong dropped = new AtomicLong(), reported = new AtomicLong();
+
+	/**
+	 * Mark every slot unpublished and start the draining thread.
+	 */
+	static {
+		for (int i = 0; i < Config.Logger.capacity; i++) {
+			published.set(i, -1);
+		}
+
+		// Drain in the background and once more on exit.
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					drain();
+					try {
+						Thread.sleep(Config.Logger.period);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}, "Logger");
+		thread.setDaemon(true);
+		thread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "Logger flush"));
+	}
+
+	/**
+	 * Log the message.
+	 *
+	 * @param message
+	 */
+	public static void info(String message) {
+		add(TEXT, message, 0, null);
+	}
+
+	/**
+	 * Log the message followed by the value.
+	 *
+	 * @param message
+	 * @param value
+	 */
+	public static void info(String message, long value) {
+		add(VALUE, message, value, null);
+	}
+
+	/**
+	 * Log the millis as running time.
+	 *
+	 * @param millis
+	 */
+	public static void elapsed(long millis) {
+		add(ELAPSED, null, millis, null);
+	}
+
+	/**
+	 * Log the message followed by the stack of the exception.
+	 *
+	 * @param message
+	 * @param error
+	 */
+	public static void error(String message, Throwable error) {
+		add(ERROR, message, 0, error);
+	}
+
+	/**
+	 * Fill a slot with the entry, or drop it when the buffer is full.
+	 *
+	 * @param kind
+	 * @param message
+	 * @param value
+	 * @param error
+	 */
+	private static void add(int kind, String message, long value, Throwable error) {
+		// Claim the next position unless it laps the drainer.
+		long position;
+		do {
+			position = claimed.get();
+			if (position - drained >= Config.Logger.capacity) {
+				dropped.incrementAndGet();
+				return;
+			}
+		} while (! claimed.compareAndSet(position, position + 1));
+
+		// Fill and publish the slot.
+		int slot = (int) (position % Config.Logger.capacity);
+		kinds[slot] = kind;
+		messages[slot] = message;
+		values[slot] = value;
+		errors[slot] = error;
+		published.set(slot, position);
+	}
+
+	/**
+	 * Format and print the published entries in order.
+	 */
+	private static synchronized void drain() {
+		PrintStream output = System.out;
+		while (true) {
+			// Stop at the first unpublished entry.
+			long position = drained;
+			int slot = (int) (position % Config.Logger.capacity);
+			if (published.get(slot) != position) break;
+
+			// Print the entry.
+			switch (kinds[slot]) {
+				case TEXT:
+					output.println(messages[slot]);
+					break;
+				case VALUE:
+					output.println(messages[slot] + " " + values[slot]);
+					break;
+				case ELAPSED:
+					long millis = values[slot];
+					output.println(String.format("%02d:%02d:%02d", millis / 60000 % 60, millis / 1000 % 60, millis % 1000));
+					break;
+				case ERROR:
+					output.println(messages[slot]);
+					errors[slot].printStackTrace(output);
+					break;
+			}
+
+			// Release the slot.
+			messages[slot] = null;
+			errors[slot] = null;
+			drained = position + 1;
+		}
+
+		// Report the entries dropped since the last drain.
+		long total = dropped.get(), before = reported.getAndSet(total);
+		if (total > before) {
+			output.println("Logger dropped " + (total - before) + " entries");
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package sphinx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class Monitor {
+
+	/**
+	 * Provider of the live metrics.
+	 */
+	public interface Metrics {
+
+		/**
+		 * Returns the current metrics as a JSON object.
+		 *
+		 * @return String
+		 */
+		public String toJson();
+
+	}
+
+	/**
+	 * The commands accepted as paths.
+	 *
+	 * @var String[]
+	 */
+	private static final String[] commands = { "start", "stop", "reset", "trace", "record" };
+
+	/**
+	 * The local HTTP server.
+	 *
+	 * @var HttpServer
+	 */
+	private HttpServer server;
+
+	/**
+	 * Creates the endpoint serving the metrics and posting the commands to the queue.
+	 *
+	 * @param metrics
+	 * @param queue
+	 * @throws IOException
+	 */
+	public Monitor(final Metrics metrics, final Queue<String> queue) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(Config.Monitor.host, Config.Monitor.port), 0);
+
+		// Serve the metrics.
+		this.server.createContext("/metrics", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, metrics.toJson());
+			}
+		});
+
+		// Post the commands to the queue, only for POST so pages and prefetches cannot drive the vehicle.
+		for (final String command : commands) {
+			this.server.createContext("/" + command, new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					if (! exchange.getRequestMethod().equals("POST")) {
+						exchange.getResponseHeaders().set("Allow", "POST");
+						respond(exchange, 405, "{\"error\":\"POST required\"}");
+						return;
+					}
+					queue.offer(command);
+					respond(exchange, 202, "{\"queued\":\"" + command + "\"}");
+				}
+			});
+		}
+	}
+
+	/**
+	 * Start serving requests on a background thread.
+	 */
+	public void start() {
+		this.server.start();
+		Logger.info("Monitor on http://" + Config.Monitor.host + ":" + Config.Monitor.port + "/metrics");
+	}
+
+	/**
+	 * Stop serving requests.
+	 */
+	public void stop() {
+		this.server.stop(0);
+	}
+
+	/**
+	 * Write the JSON body with the status.
+	 *
+	 * @param exchange
+	 * @param status
+	 * @param body
+	 * @throws IOException
+	 */
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+package sphinx;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Pipeline<T> {
+
+	/**
+	 * Work done on each item passing a stage.
+	 */
+	public interface Stage<T> {
+
+		/**
+		 * Process the item and returns whether or not to pass it on.
+		 * Items not passed on are returned to the pool.
+		 *
+		 * @param item
+		 * @return boolean
+		 */
+		public boolean process(T item);
+
+	}
+
+	/**
+	 * A stage with its input queue, thread and counters.
+	 */
+	private class Step implements Runnable {
+
+		/**
+		 * The name of the stage.
+		 *
+		 * @var String
+		 */
+		public String name;
+
+		/**
+		 * The work of the stage.
+		 *
+		 * @var Stage<T>
+		 */
+		public Stage<T> stage;
+
+		/**
+		 * The items waiting for the stage.
+		 *
+		 * @var ArrayBlockingQueue<T>
+		 */
+		public ArrayBlockingQueue<T> input;
+
+		/**
+		 * The queueing state, dropping the oldest waiting item instead of blocking when full.
+		 *
+		 * @var boolean
+		 */
+		public boolean dropOldest;
+
+		/**
+		 * The next stage, or null for the last.
+		 *
+		 * @var Step
+		 */
+		public Step next;
+
+		/**
+		 * The amount of processed and dropped items, and the nanos spent processing.
+		 *
+		 * @var AtomicLong
+		 */
+		public AtomicLong processed = new AtomicLong(), dropped = new AtomicLong(), nanos = new AtomicLong();
+
+		/**
+		 * Process items until interrupted.
+		 */
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					// Wait for the next item and process it.
+					T item = this.input.take();
+					long start = System.nanoTime();
+					boolean pass = this.stage.process(item);
+					this.nanos.addAndGet(System.nanoTime() - start);
+					this.processed.incrementAndGet();
+
+					// Pass the item on, or return it to the pool.
+					if (pass && this.next != null) {
+						this.next.offer(item);
+					} else {
+						free.put(item);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Throwable e) {
+				// Stop all stages on any failure, as the loop did before.
+				Logger.error("Stage " + this.name + " failed", e);
+				stop();
+			}
+		}
+
+		/**
+		 * Queue the item, waiting or dropping the oldest waiting item when full.
+		 *
+		 * @param item
+		 * @throws InterruptedException
+		 */
+		public void offer(T item) throws InterruptedException {
+			// Wait for room when blocking.
+			if (! this.dropOldest) {
+				this.input.put(item);
+				return;
+			}
+
+			// Return the oldest items to the pool until the item fits.
+			while (! this.input.offer(item)) {
+				T oldest = this.input.poll();
+				if (oldest != null) {
+					free.put(oldest);
+					this.dropped.incrementAndGet();
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * The items ready to be filled by the first stage.
+	 *
+	 * @var ArrayBlockingQueue<T>
+	 */
+	private ArrayBlockingQueue<T> free;
+
+	/**
+	 * The stages in order.
+	 *
+	 * @var ArrayList<Step>
+	 */
+	private ArrayList<Step> steps = new ArrayList<Step>();
+
+	/**
+	 * The stage threads.
+	 *
+	 * @var ArrayList<Thread>
+	 */
+	private ArrayList<Thread> threads = new ArrayList<Thread>();
+
+	/**
+	 * The millis when the report window started.
+	 *
+	 * @var long
+	 */
+	private long reported = System.currentTimeMillis();
+
+	/**
+	 * Creates the pipeline circulating the items.
+	 *
+	 * @param items
+	 */
+	public Pipeline(T[] items) {
+		this.free = new ArrayBlockingQueue<T>(items.length);
+		for (T item : items) {
+			this.free.add(item);
+		}
+	}
+
+	/**
+	 * Append a stage with an input queue of the capacity.
+	 * The first stage takes its items from the pool.
+	 *
+	 * @param name
+	 * @param capacity
+	 * @param dropOldest
+	 * @param stage
+	 */
+	public void add(String name, int capacity, boolean dropOldest, Stage<T> stage) {
+		Step step = new Step();
+		step.name = name;
+		step.stage = stage;
+		step.dropOldest = dropOldest && ! this.steps.isEmpty();
+		step.input = this.steps.isEmpty() ? this.free : new ArrayBlockingQueue<T>(Math.max(1, capacity));
+		if (! this.steps.isEmpty()) {
+			this.steps.get(this.steps.size() - 1).next = step;
+		}
+		this.steps.add(step);
+	}
+
+	/**
+	 * Start every stage on its own thread except the last, which runs on the
+	 * calling thread until interrupted, so window calls stay on one thread.
+	 */
+	public void run() {
+		// Start the stage threads.
+		this.threads.add(Thread.currentThread());
+		for (int i = 0; i < this.steps.size() - 1; i++) {
+			Thread thread = new Thread(this.steps.get(i), "Stage " + this.steps.get(i).name);
+			thread.setDaemon(true);
+			thread.start();
+			this.threads.add(thread);
+		}
+
+		// Run the last stage here until stopped.
+		this.steps.get(this.steps.size() - 1).run();
+		this.stop();
+	}
+
+	/**
+	 * Stop the stage threads, including the one running the last stage.
+	 */
+	public void stop() {
+		for (Thread thread : this.threads) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Returns the totals, average millis and queue depth of each stage as a JSON array.
+	 *
+	 * @return String
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < this.steps.size(); i++) {
+			Step step = this.steps.get(i);
+			long processed = step.processed.get();
+			json.append(String.format(Locale.ROOT,
+				"%s{\"name\":\"%s\",\"processed\":%d,\"dropped\":%d,\"queued\":%d,\"ms\":%.3f}",
+				i > 0 ? "," : "", step.name, processed, step.dropped.get(),
+				step.input == this.free ? 0 : step.input.size(),
+				processed > 0 ? step.nanos.get() / 1e6 / processed : 0
+			));
+		}
+		return json.append("]").toString();
+	}
+
+	/**
+	 * Output the processed and dropped items per stage when the report interval passed.
+	 *
+	 * @param now
+	 */
+	public void report(long now) {
+		// Skip if disabled or the window is not over.
+		if (Config.Scheduler.reportInterval <= 0 || now - this.reported < Config.Scheduler.reportInterval) return;
+
+		// Build the totals of each stage.
+		StringBuilder text = new StringBuilder("Pipeline:");
+		for (Step step : this.steps) {
+			text.append(String.format(" %s %d (%d dropped, %d queued)",
+				step.name, step.processed.get(), step.dropped.get(),
+				step.input == this.free ? 0 : step.input.size()
+			));
+		}
+
+		// Log the report and restart the window.
+		Logger.info(text.toString());
+		this.reported = now;
+	}
+
+}
@@ -0,0 +1,231 @@
+package sphinx;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Point;
+
+public class PlanCache {
+
+	/**
+	 * The planning modes.
+	 *
+	 * @var int
+	 */
+	public static final int CLOSEST = 1, GOAL = 2;
+
+	/**
+	 * The obstacle corners the cached plan was made for as x, y pairs.
+	 *
+	 * @var double[]
+	 */
+	private double[] obstacles = new double[0];
+
+	/**
+	 * The balls the cached plan was made for as x, y pairs.
+	 *
+	 * @var double[]
+	 */
+	private double[] balls = new double[0];
+
+	/**
+	 * The amount of obstacle corners and balls the cached plan was made for.
+	 *
+	 * @var int
+	 */
+	private int obstacleCount = 0, ballCount = 0;
+
+	/**
+	 * The robot position the cached plan was made for, or null if unknown.
+	 *
+	 * @var Point
+	 */
+	private Point robot = null;
+
+	/**
+	 * The reused marks of the planned points matched so far.
+	 *
+	 * @var boolean[]
+	 */
+	private boolean[] matched = new boolean[0];
+
+	/**
+	 * The mode the cached plan was made with, or 0 without a plan.
+	 *
+	 * @var int
+	 */
+	private int mode = 0;
+
+	/**
+	 * The millis of the last report.
+	 *
+	 * @var long
+	 */
+	private long reported = System.currentTimeMillis();
+
+	/**
+	 * The amount of plans reused and made at the last report.
+	 *
+	 * @var long
+	 */
+	private long reportedHits = 0, reportedMisses = 0;
+
+	/**
+	 * The amount of plans reused and made.
+	 *
+	 * @var AtomicLong
+	 */
+	public AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+	/**
+	 * Returns whether or not the cached plan still fits the scene, being every point
+	 * within the tolerance of the scene the plan was made for. Points are compared to
+	 * the planned scene rather than the last frame, so slow drift still causes a replan.
+	 * Otherwise the scene is saved for the plan about to be made.
+	 *
+	 * @param mode
+	 * @param obstacles
+	 * @param balls
+	 * @param robot
+	 * @param valid whether or not the current plan has points left
+	 * @return boolean
+	 */
+	public boolean isCached(int mode, Point[] obstacles, List<Point> balls, Point robot, boolean valid) {
+		// Reuse the plan of the same mode and scene.
+		if (valid && mode == this.mode && this.fits(obstacles, balls, robot)) {
+			this.hits.incrementAndGet();
+			return true;
+		}
+
+		// Save the scene for the new plan.
+		this.save(obstacles, balls, robot);
+		this.mode = mode;
+		this.misses.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Forget the cached plan.
+	 */
+	public void clear() {
+		this.mode = 0;
+	}
+
+	/**
+	 * Output the hit rate when the report interval passed.
+	 *
+	 * @param now
+	 */
+	public void report(long now) {
+		// Skip if disabled or the window is not over.
+		if (Config.Scheduler.reportInterval <= 0 || now - this.reported < Config.Scheduler.reportInterval) return;
+
+		// Log the window and restart it.
+		long hits = this.hits.get() - this.reportedHits, misses = this.misses.get() - this.reportedMisses;
+		Logger.info(String.format("Plans: %d reused, %d made (%.1f%% hits)",
+			hits, misses, hits + misses > 0 ? 100.0 * hits / (hits + misses) : 0
+		));
+		this.reportedHits += hits;
+		this.reportedMisses += misses;
+		this.reported = now;
+	}
+
+	/**
+	 * Returns whether or not every obstacle corner, ball and the robot lies within
+	 * the tolerance of a distinct point of the planned scene, in any order.
+	 *
+	 * @param obstacles
+	 * @param balls
+	 * @param robot
+	 * @return boolean
+	 */
+	private boolean fits(Point[] obstacles, List<Point> balls, Point robot) {
+		// Compare the counts first.
+		if (obstacles.length != this.obstacleCount || balls.size() != this.ballCount) return false;
+
+		// Compare the robot.
+		if ((robot == null) != (this.robot == null)) return false;
+		if (robot != null && ! this.near(robot, this.robot.x, this.robot.y, Config.Graph.robotTolerance)) return false;
+
+		// Match each obstacle corner to a planned one.
+		Arrays.fill(this.matched, 0, this.obstacleCount, false);
+		for (Point point : obstacles) {
+			if (! this.match(point, this.obstacles, this.obstacleCount)) return false;
+		}
+
+		// Match each ball to a planned one.
+		Arrays.fill(this.matched, 0, this.ballCount, false);
+		for (int i = 0; i < balls.size(); i++) {
+			if (! this.match(balls.get(i), this.balls, this.ballCount)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Mark the first unmatched planned point within the tolerance of the point,
+	 * returning whether or not one was found.
+	 *
+	 * @param point
+	 * @param planned
+	 * @param count
+	 * @return boolean
+	 */
+	private boolean match(Point point, double[] planned, int count) {
+		for (int i = 0; i < count; i++) {
+			if (! this.matched[i] && this.near(point, planned[i * 2], planned[i * 2 + 1], Config.Graph.tolerance)) {
+				this.matched[i] = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether or not the point lies within the tolerance of the coordinates.
+	 *
+	 * @param point
+	 * @param x
+	 * @param y
+	 * @param tolerance
+	 * @return boolean
+	 */
+	private boolean near(Point point, double x, double y, double tolerance) {
+		double dx = point.x - x, dy = point.y - y;
+		return dx * dx + dy * dy <= tolerance * tolerance;
+	}
+
+	/**
+	 * Save the scene the next plan is made for, reusing the storage.
+	 *
+	 * @param obstacles
+	 * @param balls
+	 * @param robot
+	 */
+	private void save(Point[] obstacles, List<Point> balls, Point robot) {
+		// Grow the storage when needed.
+		if (this.obstacles.length < obstacles.length * 2) {
+			this.obstacles = new double[obstacles.length * 2];
+		}
+		if (this.balls.length < balls.size() * 2) {
+			this.balls = new double[balls.size() * 2];
+		}
+		if (this.matched.length < Math.max(obstacles.length, balls.size())) {
+			this.matched = new boolean[Math.max(obstacles.length, balls.size())];
+		}
+
+		// Copy the points.
+		for (int i = 0; i < obstacles.length; i++) {
+			this.obstacles[i * 2] = obstacles[i].x;
+			this.obstacles[i * 2 + 1] = obstacles[i].y;
+		}
+		for (int i = 0; i < balls.size(); i++) {
+			this.balls[i * 2] = balls.get(i).x;
+			this.balls[i * 2 + 1] = balls.get(i).y;
+		}
+		this.obstacleCount = obstacles.length;
+		this.ballCount = balls.size();
+		this.robot = robot != null ? robot.clone() : null;
+	}
+
+}
@@ -0,0 +1,138 @@
+package sphinx;
+
+import sphinx.elements.Targets;
+
+public class Quality {
+
+	/**
+	 * The quality levels from best to cheapest as
+	 * <preview, DP, scale, obstacle stride, targets stride, vehicle stride>.
+	 *
+	 * @var double[][]
+	 */
+	private static final double[][] levels = {
+		{ 1, Config.Targets.DP, 1,    1, 1, 1 },
+		{ 0, Config.Targets.DP, 1,    1, 1, 1 },
+		{ 0, 1.8,               1,    2, 1, 1 },
+		{ 0, 1.8,               0.75, 4, 2, 1 },
+		{ 0, 2.0,               0.5,  8, 3, 1 },
+		{ 0, 2.0,               0.5,  8, 4, 2 },
+	};
+
+	/**
+	 * The targets detector adjusted by the levels.
+	 *
+	 * @var Targets
+	 */
+	private Targets targets;
+
+	/**
+	 * The scheduler running the detectors.
+	 *
+	 * @var Scheduler
+	 */
+	private Scheduler scheduler;
+
+	/**
+	 * The current quality level, also read by the monitor thread.
+	 *
+	 * @var int
+	 */
+	private volatile int level = 0;
+
+	/**
+	 * The frame processing budget in nanos.
+	 *
+	 * @var long
+	 */
+	private long budget = 1000000000L / Config.Quality.targetFps;
+
+	/**
+	 * The processing nanos and frames of the current window.
+	 *
+	 * @var long
+	 */
+	private long sum = 0, count = 0;
+
+	/**
+	 * The preview windows state.
+	 *
+	 * @var boolean
+	 */
+	public volatile boolean preview = true;
+
+	/**
+	 * Creates the controller for the targets detector and scheduler.
+	 *
+	 * @param targets
+	 * @param scheduler
+	 */
+	public Quality(Targets targets, Scheduler scheduler) {
+		this.targets = targets;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Returns the current quality level.
+	 *
+	 * @return int
+	 */
+	public int getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * Record the processing time of a frame and adjust the level per window.
+	 *
+	 * @param nanos
+	 */
+	public void update(long nanos) {
+		// Add the frame to the window.
+		this.sum += nanos;
+		this.count++;
+
+		// Skip until the window is full.
+		if (! Config.Quality.adapt || this.count < Config.Quality.window) return;
+
+		// Find the average and start the next window.
+		double average = (double) this.sum / this.count;
+		this.sum = 0;
+		this.count = 0;
+
+		// Lower the quality when over budget, restore it with headroom.
+		if (average > this.budget && this.level < levels.length - 1) {
+			this.apply(this.level + 1, average);
+		} else if (average < this.budget * Config.Quality.headroom && this.level > 0) {
+			this.apply(this.level - 1, average);
+		}
+	}
+
+	/**
+	 * Apply the settings of the passed level and log the change.
+	 *
+	 * @param level
+	 * @param average
+	 */
+	private void apply(int level, double average) {
+		// Save the level settings.
+		double[] settings = levels[level];
+		boolean preview = settings[0] > 0;
+		this.targets.setDP(settings[1]);
+		this.targets.setScale(settings[2]);
+		this.scheduler.setStride("Obstacle", (int) settings[3]);
+		this.scheduler.setStride("Targets", (int) settings[4]);
+		this.scheduler.setStride("Vehicle", (int) settings[5]);
+
+		// Save the preview state, closed by the presenting stage.
+		this.preview = preview;
+
+		// Log the change.
+		Logger.info(String.format(
+			"Quality %d -> %d at %.1f ms/frame: preview %s, DP %.1f, scale %.2f, strides %d/%d/%d",
+			this.level, level, average / 1e6, preview ? "on" : "off", settings[1], settings[2],
+			(int) settings[3], (int) settings[4], (int) settings[5]
+		));
+		this.level = level;
+	}
+
+}
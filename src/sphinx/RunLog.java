@@ -0,0 +1,481 @@
+package sphinx;
+
+import java.io.IOException;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Point;
+
+public class RunLog {
+
+	/**
+	 * The record types.
+	 *
+	 * @var int
+	 */
+	public static final int POSE = 1, TARGETS = 2, OBSTACLE = 3, PATH = 4, SENT = 5, RECEIVED = 6;
+
+	/**
+	 * The file marker and format version.
+	 *
+	 * @var int
+	 */
+	private static final int MAGIC = 0x53504c47, VERSION = 1;
+
+	/**
+	 * The bytes of the file header and of each record header.
+	 *
+	 * @var int
+	 */
+	private static final int FILE_HEADER = 8, RECORD_HEADER = 24;
+
+	/**
+	 * The bytes of each index entry as <time, offset>.
+	 *
+	 * @var int
+	 */
+	private static final int INDEX_ENTRY = 16;
+
+	/**
+	 * The mapped record file.
+	 *
+	 * @var MappedByteBuffer
+	 */
+	private MappedByteBuffer records;
+
+	/**
+	 * The mapped sparse time index.
+	 *
+	 * @var MappedByteBuffer
+	 */
+	private MappedByteBuffer index;
+
+	/**
+	 * The offset of the next record.
+	 *
+	 * @var AtomicLong
+	 */
+	private AtomicLong position = new AtomicLong(FILE_HEADER);
+
+	/**
+	 * The amount of written index entries.
+	 *
+	 * @var AtomicLong
+	 */
+	private AtomicLong entries = new AtomicLong();
+
+	/**
+	 * The earliest time of the next index entry.
+	 *
+	 * @var AtomicLong
+	 */
+	private AtomicLong nextEntry = new AtomicLong();
+
+	/**
+	 * The amount of records dropped because the file was full.
+	 *
+	 * @var AtomicLong
+	 */
+	public AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * The closed state, dropping later records.
+	 *
+	 * @var boolean
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates the log files with the path prefix and maps them.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public RunLog(String path) throws IOException {
+		// Create the log directory if missing.
+		File parent = new File(path).getAbsoluteFile().getParentFile();
+		if (parent != null && ! parent.isDirectory() && ! parent.mkdirs()) {
+			throw new IOException("Cannot create " + parent);
+		}
+
+		// Map the record and index files.
+		this.records = map(path + ".log", Config.Log.size, "rw");
+		this.index = map(path + ".idx", (long) Config.Log.indexEntries * INDEX_ENTRY, "rw");
+
+		// Write the file header.
+		this.records.putInt(0, MAGIC);
+		this.records.putInt(4, VERSION);
+	}
+
+	/**
+	 * Append the vehicle pose.
+	 *
+	 * @param time
+	 * @param sequence
+	 * @param x
+	 * @param y
+	 * @param rotation
+	 */
+	public void pose(long time, long sequence, double x, double y, double rotation) {
+		// Reserve the record or skip if full.
+		int offset = this.reserve(time, 24);
+		if (offset < 0) return;
+
+		// Write the payload and commit.
+		this.records.putDouble(offset + RECORD_HEADER, x);
+		this.records.putDouble(offset + RECORD_HEADER + 8, y);
+		this.records.putDouble(offset + RECORD_HEADER + 16, rotation);
+		this.commit(offset, POSE, time, sequence, 24);
+	}
+
+	/**
+	 * Append a list of points of the type.
+	 *
+	 * @param type
+	 * @param time
+	 * @param sequence
+	 * @param points
+	 */
+	public void points(int type, long time, long sequence, List<Point> points) {
+		// Reserve the record or skip if full.
+		int count = points.size();
+		int offset = this.reserve(time, 8 + count * 8);
+		if (offset < 0) return;
+
+		// Write the payload and commit.
+		int at = offset + RECORD_HEADER;
+		this.records.putInt(at, count);
+		for (int i = 0; i < count; i++) {
+			Point point = points.get(i);
+			this.records.putFloat(at + 8 + i * 8, (float) point.x);
+			this.records.putFloat(at + 12 + i * 8, (float) point.y);
+		}
+		this.commit(offset, type, time, sequence, 8 + count * 8);
+	}
+
+	/**
+	 * Append an array of points of the type, skipping missing points.
+	 *
+	 * @param type
+	 * @param time
+	 * @param sequence
+	 * @param points
+	 */
+	public void points(int type, long time, long sequence, Point[] points) {
+		// Count the present points.
+		int count = 0;
+		for (int i = 0; i < points.length; i++) {
+			if (points[i] != null) count++;
+		}
+
+		// Reserve the record or skip if full.
+		int offset = this.reserve(time, 8 + count * 8);
+		if (offset < 0) return;
+
+		// Write the payload and commit.
+		int at = offset + RECORD_HEADER + 8;
+		this.records.putInt(offset + RECORD_HEADER, count);
+		for (int i = 0; i < points.length; i++) {
+			if (points[i] == null) continue;
+			this.records.putFloat(at, (float) points[i].x);
+			this.records.putFloat(at + 4, (float) points[i].y);
+			at += 8;
+		}
+		this.commit(offset, type, time, sequence, 8 + count * 8);
+	}
+
+	/**
+	 * Append a command line sent or received.
+	 *
+	 * @param type
+	 * @param time
+	 * @param sequence
+	 * @param text
+	 */
+	public void command(int type, long time, long sequence, CharSequence text) {
+		// Reserve the record or skip if full.
+		int length = text.length();
+		int offset = this.reserve(time, 8 + length);
+		if (offset < 0) return;
+
+		// Write the payload as single byte characters and commit.
+		int at = offset + RECORD_HEADER;
+		this.records.putInt(at, length);
+		for (int i = 0; i < length; i++) {
+			this.records.put(at + 8 + i, (byte) text.charAt(i));
+		}
+		this.commit(offset, type, time, sequence, 8 + length);
+	}
+
+	/**
+	 * Flush the mapped files to disk.
+	 */
+	public void flush() {
+		this.records.force();
+		this.index.force();
+	}
+
+	/**
+	 * Stop accepting records and flush the files to disk, once.
+	 */
+	public synchronized void close() {
+		if (this.closed) return;
+		this.closed = true;
+		this.flush();
+	}
+
+	/**
+	 * Returns the offset of a reserved record, or -1 when the file is full.
+	 * Adds an index entry when the index interval has passed.
+	 *
+	 * @param time
+	 * @param payload
+	 * @return int
+	 */
+	private int reserve(long time, int payload) {
+		// Skip if closed.
+		if (this.closed) return -1;
+
+		// Claim the record bytes aligned to 8.
+		int length = (RECORD_HEADER + payload + 7) & ~7;
+		long offset = this.position.getAndAdd(length);
+		if (offset + length > this.records.capacity()) {
+			this.dropped.incrementAndGet();
+			return -1;
+		}
+
+		// Claim an index entry once per interval.
+		long next = this.nextEntry.get();
+		if (time >= next && this.nextEntry.compareAndSet(next, time + Config.Log.indexInterval)) {
+			long entry = this.entries.getAndIncrement();
+			if (entry < Config.Log.indexEntries) {
+				this.index.putLong((int) (entry * INDEX_ENTRY) + 8, offset);
+				this.index.putLong((int) (entry * INDEX_ENTRY), time);
+			}
+		}
+
+		// Return the record offset.
+		return (int) offset;
+	}
+
+	/**
+	 * Write the record header, with the type last to mark it complete.
+	 *
+	 * @param offset
+	 * @param type
+	 * @param time
+	 * @param sequence
+	 * @param payload
+	 */
+	private void commit(int offset, int type, long time, long sequence, int payload) {
+		this.records.putInt(offset + 4, (RECORD_HEADER + payload + 7) & ~7);
+		this.records.putLong(offset + 8, time);
+		this.records.putLong(offset + 16, sequence);
+		this.records.putInt(offset, type);
+	}
+
+	/**
+	 * Returns the file mapped at the passed size.
+	 *
+	 * @param path
+	 * @param size
+	 * @param mode
+	 * @return MappedByteBuffer
+	 * @throws IOException
+	 */
+	private static MappedByteBuffer map(String path, long size, String mode) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(path, mode)) {
+			// Use the file size when reading.
+			if (mode.equals("r")) size = file.length();
+
+			// Map the whole file.
+			return file.getChannel().map(
+				mode.equals("r") ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+				0, size
+			);
+		}
+	}
+
+	/**
+	 * Sequential reader of a run log with time seeking.
+	 */
+	public static class Reader {
+
+		/**
+		 * The mapped record file.
+		 *
+		 * @var MappedByteBuffer
+		 */
+		private MappedByteBuffer records;
+
+		/**
+		 * The mapped sparse time index.
+		 *
+		 * @var MappedByteBuffer
+		 */
+		private MappedByteBuffer index;
+
+		/**
+		 * The amount of written index entries.
+		 *
+		 * @var int
+		 */
+		private int entries = 0;
+
+		/**
+		 * The offset of the current and the next record.
+		 *
+		 * @var int
+		 */
+		private int current = -1, next = FILE_HEADER;
+
+		/**
+		 * Opens the log files with the path prefix.
+		 *
+		 * @param path
+		 * @throws IOException
+		 */
+		public Reader(String path) throws IOException {
+			// Map the record and index files.
+			this.records = map(path + ".log", 0, "r");
+			this.index = map(path + ".idx", 0, "r");
+
+			// Check the file header.
+			if (this.records.getInt(0) != MAGIC || this.records.getInt(4) != VERSION) {
+				throw new IOException("Not a run log: " + path);
+			}
+
+			// Count the written index entries.
+			while ((this.entries + 1) * INDEX_ENTRY <= this.index.capacity()
+				&& this.index.getLong(this.entries * INDEX_ENTRY + 8) != 0) {
+				this.entries++;
+			}
+		}
+
+		/**
+		 * Move before the last indexed record at or before the time.
+		 * Records written concurrently may be slightly out of time order.
+		 *
+		 * @param time
+		 */
+		public void seek(long time) {
+			// Binary search the last entry at or before the time.
+			int low = 0, high = this.entries - 1, found = -1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				if (this.index.getLong(middle * INDEX_ENTRY) <= time) {
+					found = middle;
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+
+			// Continue from the entry, or the start if before all.
+			this.current = -1;
+			this.next = found < 0 ? FILE_HEADER : (int) this.index.getLong(found * INDEX_ENTRY + 8);
+		}
+
+		/**
+		 * Move to the next complete record and returns whether or not one exists.
+		 * Stops at the first record with an invalid length, as left by a crash.
+		 *
+		 * @return boolean
+		 */
+		public boolean next() {
+			// Stop at the end of the file or an unfinished record.
+			if (this.next + RECORD_HEADER > this.records.capacity() || this.records.getInt(this.next) == 0) {
+				return false;
+			}
+
+			// Stop at a length left unwritten or garbled by a crash.
+			int length = this.records.getInt(this.next + 4);
+			if (length < RECORD_HEADER || (length & 7) != 0 || (long) this.next + length > this.records.capacity()) {
+				return false;
+			}
+
+			// Move to the record.
+			this.current = this.next;
+			this.next += length;
+			return true;
+		}
+
+		/**
+		 * Returns the type of the current record.
+		 *
+		 * @return int
+		 */
+		public int getType() {
+			return this.records.getInt(this.current);
+		}
+
+		/**
+		 * Returns the millis of the current record.
+		 *
+		 * @return long
+		 */
+		public long getTime() {
+			return this.records.getLong(this.current + 8);
+		}
+
+		/**
+		 * Returns the frame sequence of the current record.
+		 *
+		 * @return long
+		 */
+		public long getSequence() {
+			return this.records.getLong(this.current + 16);
+		}
+
+		/**
+		 * Returns the pose of the current record as <x, y, rotation>.
+		 *
+		 * @return double[]
+		 */
+		public double[] getPose() {
+			int at = this.current + RECORD_HEADER;
+			return new double[] {
+				this.records.getDouble(at),
+				this.records.getDouble(at + 8),
+				this.records.getDouble(at + 16)
+			};
+		}
+
+		/**
+		 * Returns the points of the current record.
+		 *
+		 * @return Point[]
+		 */
+		public Point[] getPoints() {
+			int at = this.current + RECORD_HEADER;
+			Point[] points = new Point[this.records.getInt(at)];
+			for (int i = 0; i < points.length; i++) {
+				points[i] = new Point(
+					this.records.getFloat(at + 8 + i * 8),
+					this.records.getFloat(at + 12 + i * 8)
+				);
+			}
+			return points;
+		}
+
+		/**
+		 * Returns the command line of the current record.
+		 *
+		 * @return String
+		 */
+		public String getText() {
+			int at = this.current + RECORD_HEADER;
+			char[] text = new char[this.records.getInt(at)];
+			for (int i = 0; i < text.length; i++) {
+				text[i] = (char) this.records.get(at + 8 + i);
+			}
+			return new String(text);
+		}
+
+	}
+
+}
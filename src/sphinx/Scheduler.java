@@ -0,0 +1,215 @@
+package sphinx;
+
+import java.util.ArrayList;
+
+public class Scheduler {
+
+	/**
+	 * Condition forcing a task to run before its interval has passed.
+	 */
+	public interface Trigger {
+
+		/**
+		 * Returns whether or not the task should run now.
+		 *
+		 * @return boolean
+		 */
+		public boolean isTriggered();
+
+	}
+
+	/**
+	 * A scheduled detector with its timing state.
+	 */
+	private static class Task {
+
+		/**
+		 * The name of the task.
+		 *
+		 * @var String
+		 */
+		public String name;
+
+		/**
+		 * The millis between runs, or 0 for every frame.
+		 *
+		 * @var int
+		 */
+		public int interval;
+
+		/**
+		 * The condition forcing a run, or null.
+		 *
+		 * @var Trigger
+		 */
+		public Trigger trigger;
+
+		/**
+		 * The work of the task.
+		 *
+		 * @var Runnable
+		 */
+		public Runnable job;
+
+		/**
+		 * The minimum frames between runs.
+		 *
+		 * @var int
+		 */
+		public int stride = 1;
+
+		/**
+		 * The millis of the last run, or -1 if never run.
+		 *
+		 * @var long
+		 */
+		public long last = -1;
+
+		/**
+		 * The frames checked since the last run.
+		 *
+		 * @var int
+		 */
+		public int skipped = 0;
+
+		/**
+		 * The forced run state of the next check, requested from any thread.
+		 *
+		 * @var boolean
+		 */
+		public volatile boolean requested = false;
+
+		/**
+		 * The runs and spent nanos of the report window.
+		 *
+		 * @var long
+		 */
+		public long runs = 0, nanos = 0;
+
+	}
+
+	/**
+	 * The registered tasks.
+	 *
+	 * @var ArrayList<Task>
+	 */
+	private ArrayList<Task> tasks = new ArrayList<Task>();
+
+	/**
+	 * The millis when the report window started.
+	 *
+	 * @var long
+	 */
+	private long reported = System.currentTimeMillis();
+
+	/**
+	 * Register a task running at an interval or when triggered.
+	 *
+	 * @param name
+	 * @param interval
+	 * @param trigger
+	 * @param job
+	 */
+	public void add(String name, int interval, Trigger trigger, Runnable job) {
+		Task task = new Task();
+		task.name = name;
+		task.interval = interval;
+		task.trigger = trigger;
+		task.job = job;
+		this.tasks.add(task);
+	}
+
+	/**
+	 * Set the minimum frames between runs of the task.
+	 *
+	 * @param name
+	 * @param stride
+	 */
+	public void setStride(String name, int stride) {
+		this.find(name).stride = Math.max(1, stride);
+	}
+
+	/**
+	 * Force the task to run at its next check.
+	 *
+	 * @param name
+	 */
+	public void request(String name) {
+		this.find(name).requested = true;
+	}
+
+	/**
+	 * Run the task if due and returns whether or not it ran.
+	 *
+	 * @param name
+	 * @param now
+	 * @param sequence of the frame traced with the run
+	 * @return boolean
+	 */
+	public boolean run(String name, long now, long sequence) {
+		// Skip if within the stride.
+		Task task = this.find(name);
+		if (++task.skipped < task.stride) return false;
+
+		// Skip if not requested, triggered or past the interval.
+		boolean due = task.requested || task.last < 0 || now - task.last >= task.interval
+			|| (task.trigger != null && task.trigger.isTriggered());
+		if (! due) return false;
+
+		// Run and time the task.
+		long start = System.nanoTime();
+		task.job.run();
+		long end = System.nanoTime();
+		task.nanos += end - start;
+		Tracer.record(task.name, sequence, start, end);
+		task.runs++;
+
+		// Restart the timing state.
+		task.last = now;
+		task.skipped = 0;
+		task.requested = false;
+		return true;
+	}
+
+	/**
+	 * Output the share of time spent per task when the report interval passed.
+	 *
+	 * @param now
+	 */
+	public void report(long now) {
+		// Skip if disabled or the window is not over.
+		long window = now - this.reported;
+		if (Config.Scheduler.reportInterval <= 0 || window < Config.Scheduler.reportInterval) return;
+
+		// Build the share and average of each task.
+		StringBuilder text = new StringBuilder("Scheduler:");
+		for (Task task : this.tasks) {
+			text.append(String.format(" %s %.1f%% (%d runs, %.2f ms)",
+				task.name, task.nanos / 1e4 / window, task.runs,
+				task.runs > 0 ? task.nanos / 1e6 / task.runs : 0
+			));
+
+			// Restart the window of the task.
+			task.runs = 0;
+			task.nanos = 0;
+		}
+
+		// Log the report and restart the window.
+		Logger.info(text.toString());
+		this.reported = now;
+	}
+
+	/**
+	 * Returns the task with the passed name.
+	 *
+	 * @param name
+	 * @return Task
+	 */
+	private Task find(String name) {
+		for (Task task : this.tasks) {
+			if (task.name.equals(name)) return task;
+		}
+		throw new IllegalArgumentException("Unknown task " + name);
+	}
+
+}
@@ -0,0 +1,154 @@
+package sphinx;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Tracer {
+
+	/**
+	 * The stage names of the recorded spans.
+	 *
+	 * @var String[]
+	 */
+	private static final String[] stages = new String[Config.Trace.capacity];
+
+	/**
+	 * The frame sequence numbers of the recorded spans.
+	 *
+	 * @var long[]
+	 */
+	private static final long[] frames = new long[Config.Trace.capacity];
+
+	/**
+	 * The begin and end nanos of the recorded spans.
+	 *
+	 * @var long[]
+	 */
+	private static final long[] begins = new long[Config.Trace.capacity], ends = new long[Config.Trace.capacity];
+
+	/**
+	 * The thread ids of the recorded spans.
+	 *
+	 * @var long[]
+	 */
+	private static final long[] threads = new long[Config.Trace.capacity];
+
+	/**
+	 * The names of the recording threads by id.
+	 *
+	 * @var Map<Long, String>
+	 */
+	private static final Map<Long, String> names = new ConcurrentHashMap<Long, String>();
+
+	/**
+	 * The total amount of recorded spans.
+	 *
+	 * @var AtomicLong
+	 */
+	private static final AtomicLong recorded = new AtomicLong();
+
+	/**
+	 * The nanos all trace times are relative to.
+	 *
+	 * @var long
+	 */
+	private static final long origin = System.nanoTime();
+
+	/**
+	 * Returns the begin nanos of a span.
+	 *
+	 * @return long
+	 */
+	public static long begin() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record a span of the stage for the frame ending now.
+	 *
+	 * @param stage
+	 * @param frame
+	 * @param begin
+	 */
+	public static void end(String stage, long frame, long begin) {
+		record(stage, frame, begin, System.nanoTime());
+	}
+
+	/**
+	 * Record a span in the ring buffer, overwriting the oldest.
+	 * A span overwritten while dumping may be written half updated.
+	 *
+	 * @param stage
+	 * @param frame
+	 * @param begin
+	 * @param end
+	 */
+	public static void record(String stage, long frame, long begin, long end) {
+		// Skip if disabled.
+		if (! Config.Trace.enable) return;
+
+		// Claim the next slot.
+		int slot = (int) (recorded.getAndIncrement() % Config.Trace.capacity);
+
+		// Save the span.
+		Thread thread = Thread.currentThread();
+		stages[slot] = stage;
+		frames[slot] = frame;
+		begins[slot] = begin;
+		ends[slot] = end;
+		threads[slot] = thread.getId();
+
+		// Save the thread name once.
+		if (! names.containsKey(thread.getId())) {
+			names.put(thread.getId(), thread.getName());
+		}
+	}
+
+	/**
+	 * Write the recorded spans as Chrome trace events and returns the path.
+	 *
+	 * @return String
+	 * @throws IOException
+	 */
+	public static String dump() throws IOException {
+		// Find the range of spans still in the buffer.
+		long last = recorded.get();
+		long first = Math.max(0, last - Config.Trace.capacity);
+		String path = Config.Trace.directory + "trace-" + System.currentTimeMillis() + ".json";
+
+		// Write the events.
+		try (PrintWriter output = new PrintWriter(new BufferedWriter(new FileWriter(path)))) {
+			output.println("{\"traceEvents\":[");
+
+			// Write the thread names.
+			for (Map.Entry<Long, String> entry : names.entrySet()) {
+				output.println(String.format(Locale.ROOT,
+					"{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":\"%s\"}},",
+					entry.getKey(), entry.getValue().replace("\"", "'")
+				));
+			}
+
+			// Write the spans as complete events in microseconds.
+			for (long i = first; i < last; i++) {
+				int slot = (int) (i % Config.Trace.capacity);
+				output.println(String.format(Locale.ROOT,
+					"{\"name\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,\"ts\":%.3f,\"dur\":%.3f,\"args\":{\"frame\":%d}}%s",
+					stages[slot], threads[slot], (begins[slot] - origin) / 1e3,
+					(ends[slot] - begins[slot]) / 1e3, frames[slot], i < last - 1 ? "," : ""
+				));
+			}
+
+			output.println("]}");
+		}
+
+		// Return the written path.
+		return path;
+	}
+
+}
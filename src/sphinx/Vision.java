@@ -1,9 +1,10 @@
 package sphinx;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.opencv.core.Core;
 import org.opencv.core.Point;
@@ -18,9 +19,91 @@ import sphinx.elements.Vehicle;
 import sphinx.vision.Camera;
 import sphinx.vision.Cropper;
 import sphinx.vision.Frame;
+import sphinx.vision.Fusion;
+import sphinx.vision.Overlay;
+import sphinx.vision.Recorder;
 
 public class Vision {
 	
+	/**
+	 * The frame holders passed between the stages.
+	 */
+	private static class Packet {
+		
+		/**
+		 * The captured frame, cropped and annotated along the stages.
+		 *
+		 * @var Frame
+		 */
+		public Frame frame = new Frame("Frame");
+		
+		/**
+		 * The frame in HSV color space.
+		 *
+		 * @var Frame
+		 */
+		public Frame hsv = new Frame("HSV");
+		
+		/**
+		 * The uncropped frame kept while recording.
+		 *
+		 * @var Frame
+		 */
+		public Frame raw = new Frame("Raw");
+		
+		/**
+		 * The detector masks copied for the preview.
+		 *
+		 * @var Frame
+		 */
+		public Frame targets = new Frame("White - Targets"),
+			obstacle = new Frame("Red - Obstacle"),
+			vehicle = new Frame("Blue - Vehicle");
+		
+		/**
+		 * The markers drawn by the presenter.
+		 *
+		 * @var Overlay
+		 */
+		public Overlay overlay = new Overlay();
+		
+		/**
+		 * The nanos when processing started.
+		 *
+		 * @var long
+		 */
+		public long processing;
+		
+		/**
+		 * The millis when the frame was captured.
+		 *
+		 * @var long
+		 */
+		public long now;
+		
+		/**
+		 * The recording state of the raw frame.
+		 *
+		 * @var boolean
+		 */
+		public boolean recording;
+		
+		/**
+		 * The preview state of the masks.
+		 *
+		 * @var boolean
+		 */
+		public boolean preview;
+	
+	}
+	
+	/**
+	 * The color of the drawn path.
+	 *
+	 * @var Scalar
+	 */
+	private static final Scalar PATH = new Scalar(0, 0, 255);
+	
 	/**
 	 * The starting time of the run.
 	 *
@@ -40,7 +123,7 @@ public class Vision {
 	 *
 	 * @var boolean
 	 */
-	private boolean running = Config.Client.autoStart;
+	private volatile boolean running = Config.Client.autoStart;
 	
 	/**
 	 * The incoming console data stream.
@@ -56,6 +139,150 @@ public class Vision {
 	 */
 	private BufferedReader reader;
 	
+	/**
+	 * The console and endpoint commands waiting for the tracking stage.
+	 *
+	 * @var ConcurrentLinkedQueue<String>
+	 */
+	private ConcurrentLinkedQueue<String> commands = new ConcurrentLinkedQueue<String>();
+	
+	/**
+	 * The metrics and control endpoint, or null when disabled.
+	 *
+	 * @var Monitor
+	 */
+	private Monitor monitor;
+	
+	/**
+	 * The copy of the current path for the endpoint.
+	 *
+	 * @var Point[]
+	 */
+	private volatile Point[] plan = new Point[0];
+	
+	/**
+	 * The presented frames per second of the last second.
+	 *
+	 * @var double
+	 */
+	private volatile double fps = 0;
+	
+	/**
+	 * The millis when the frame rate window started, and its presented frames.
+	 *
+	 * @var long
+	 */
+	private long fpsStart = 0, fpsFrames = 0;
+	
+	/**
+	 * The video recorder of the current run, or null when not recording.
+	 *
+	 * @var Recorder
+	 */
+	private volatile Recorder recorder;
+	
+	/**
+	 * The binary log of the run, or null when disabled.
+	 *
+	 * @var RunLog
+	 */
+	private RunLog log;
+	
+	/**
+	 * The video capture.
+	 *
+	 * @var Camera
+	 */
+	private Camera camera;
+	
+	/**
+	 * The cropping state, skipped when fused frames are already field aligned.
+	 *
+	 * @var boolean
+	 */
+	private boolean shouldCrop;
+	
+	/**
+	 * The video cropper.
+	 *
+	 * @var Cropper
+	 */
+	private Cropper cropper;
+	
+	/**
+	 * The EV3 server connection, or null when disabled.
+	 *
+	 * @var Client
+	 */
+	private Client client;
+	
+	/**
+	 * The path finding graph, or null when disabled.
+	 *
+	 * @var Graph
+	 */
+	private Graph graph;
+	
+	/**
+	 * The cache of the current path.
+	 *
+	 * @var PlanCache
+	 */
+	private PlanCache plans = new PlanCache();
+	
+	/**
+	 * The vision objects.
+	 *
+	 * @var Targets
+	 * @var Vehicle
+	 * @var Obstacle
+	 */
+	private Targets targets = new Targets();
+	private Vehicle vehicle = new Vehicle();
+	private Obstacle obstacle = new Obstacle();
+	
+	/**
+	 * The schedulers of the cropper and the detectors.
+	 *
+	 * @var Scheduler
+	 */
+	private Scheduler rectifier, scheduler;
+	
+	/**
+	 * The adaptive quality controller.
+	 *
+	 * @var Quality
+	 */
+	private Quality quality;
+	
+	/**
+	 * The stages the frames pass through.
+	 *
+	 * @var Pipeline<Packet>
+	 */
+	private Pipeline<Packet> pipeline;
+	
+	/**
+	 * The frames currently being rectified and tracked, read by the scheduled tasks.
+	 *
+	 * @var Packet
+	 */
+	private Packet rectifying, tracking;
+	
+	/**
+	 * The preview windows state of the presenting stage.
+	 *
+	 * @var boolean
+	 */
+	private boolean showing = false;
+	
+	/**
+	 * The cached unsafe distance lines of the presenting stage.
+	 *
+	 * @var Overlay.Layer
+	 */
+	private Overlay.Layer layer = new Overlay.Layer();
+	
 	/**
 	 * @wip
 	 */
@@ -73,213 +300,567 @@ public class Vision {
 		// Boot the computer vision.
 		new Vision().boot();
 	}
-
+	
 	/**
 	 * Boots the main program.
 	 */
 	public void boot() {
-		// Initialize the video capture.
-		Camera camera = new Camera(
-			Config.Camera.useWebcam,
-			Config.Camera.source
-		);
+		// Initialize the video capture, fusing several cameras if enabled.
+		this.camera = Config.Fusion.enable
+			? new Camera(new Fusion())
+			: new Camera(Config.Camera.useWebcam, Config.Camera.source);
+		
+		// Skip cropping when fused frames are already field aligned.
+		this.shouldCrop = Config.Camera.shouldCrop && ! Config.Fusion.enable;
 		
 		// Initialize video cropper.
-		Cropper cropper = new Cropper();
+		this.cropper = new Cropper(Config.Camera.calibration);
 		
 		// Initialize EV3 server connection.
-		Client client = Config.Client.connect
+		this.client = Config.Client.connect
 				? new Client()
 				: null;
 		
+		// Open the run log and pass it to the client.
+		if (Config.Log.enable) {
+			try {
+				this.log = new RunLog(Config.Log.directory + "run-" + System.currentTimeMillis());
+				if (this.client != null) this.client.log = this.log;
+				
+				// Flush the log when the process exits.
+				final RunLog log = this.log;
+				Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+					@Override
+					public void run() {
+						log.close();
+					}
+				}, "Log flush"));
+			} catch (IOException e) {
+				Logger.error("Run log failed to open", e);
+			}
+		}
+		
 		// Initialize path finding graph.
-		Graph graph = Config.Graph.enable
+		this.graph = Config.Graph.enable
 			? new Graph()
 			: null;
-			
-		// Initialize vision objects.
-		Targets targets = new Targets();
-		Vehicle vehicle = new Vehicle();
-		Obstacle obstacle = new Obstacle();
-			
-		// Create frame holders.
-		Frame frame = new Frame("Frame");
-		Frame hsv = new Frame("HSV");
 		
-		// Start input stream and reader for system input.
+		// Schedule the cropper and the detectors at their rates.
+		this.rectifier = new Scheduler();
+		this.scheduler = this.schedule(this.rectifier);
+		
+		// Initialize adaptive quality controller.
+		this.quality = new Quality(this.targets, this.scheduler);
+		
+		// Start input stream and reader for system input, read on its own thread.
 		this.stream = new InputStreamReader(System.in);
 		this.reader = new BufferedReader(this.stream);
+		Thread console = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Vision.this.listen();
+			}
+		}, "Console");
+		console.setDaemon(true);
+		console.start();
 		
 		// Start program cropping time.
 		this.cropTimer = System.currentTimeMillis();
 		
-		// Start infinity loop.
-		while (true) {
-			// Capture frame from camera.
-			camera.capture(frame);
-			
-			// Check if should detch playin area.
-			if (cropper.shouldDetect(this.cropTimer)) {
-				cropper.detect(frame);
-				continue;
+		// Create the frames in flight.
+		Packet[] packets = new Packet[Config.Pipeline.frames];
+		for (int i = 0; i < packets.length; i++) {
+			packets[i] = new Packet();
+		}
+		
+		// Connect the stages, so a stage works on the next frame while the following stage works on this one.
+		this.pipeline = new Pipeline<Packet>(packets);
+		this.pipeline.add("Capture", 0, false, new Pipeline.Stage<Packet>() {
+			@Override
+			public boolean process(Packet packet) {
+				return Vision.this.capture(packet);
+			}
+		});
+		this.pipeline.add("Rectify", Config.Pipeline.capacity, Config.Pipeline.dropRectify, new Pipeline.Stage<Packet>() {
+			@Override
+			public boolean process(Packet packet) {
+				return Vision.this.rectify(packet);
+			}
+		});
+		this.pipeline.add("Track", Config.Pipeline.capacity, Config.Pipeline.dropTrack, new Pipeline.Stage<Packet>() {
+			@Override
+			public boolean process(Packet packet) {
+				return Vision.this.track(packet);
+			}
+		});
+		this.pipeline.add("Present", Config.Pipeline.capacity, Config.Pipeline.dropPresent, new Pipeline.Stage<Packet>() {
+			@Override
+			public boolean process(Packet packet) {
+				return Vision.this.present(packet);
+			}
+		});
+		
+		// Start the metrics and control endpoint.
+		if (Config.Monitor.enable) {
+			try {
+				this.monitor = new Monitor(new Monitor.Metrics() {
+					@Override
+					public String toJson() {
+						return Vision.this.toJson();
+					}
+				}, this.commands);
+				this.monitor.start();
+			} catch (IOException e) {
+				Logger.error("Monitor failed to start", e);
 			}
+		}
+		
+		// Run the stages, presenting on this thread.
+		this.pipeline.run();
+		
+		// Stop the endpoint and close the log with the stages.
+		if (this.monitor != null) this.monitor.stop();
+		if (this.log != null) this.log.close();
+	}
+	
+	/**
+	 * Queue the console lines until the input ends.
+	 */
+	private void listen() {
+		try {
+			String text;
+			while ((text = this.reader.readLine()) != null) {
+				this.commands.offer(text.trim());
+			}
+		} catch (IOException e) {
+			Logger.error("Console input failed", e);
+		}
+	}
+	
+	/**
+	 * Capture the frame from the camera.
+	 *
+	 * @param packet
+	 * @return boolean
+	 */
+	private boolean capture(Packet packet) {
+		// Capture frame from camera.
+		long span = Tracer.begin();
+		this.camera.capture(packet.frame);
+		packet.processing = System.nanoTime();
+		packet.now = System.currentTimeMillis();
+		Tracer.record("Capture", packet.frame.sequence, span, packet.processing);
+		return true;
+	}
+	
+	/**
+	 * Find the playing area, crop the frame to it and convert it to HSV.
+	 *
+	 * @param packet
+	 * @return boolean
+	 */
+	private boolean rectify(Packet packet) {
+		Frame frame = packet.frame;
+		this.rectifying = packet;
+		
+		// Check if should detch playin area.
+		if (this.shouldCrop && this.cropper.shouldDetect(this.cropTimer)) {
+			this.cropper.detect(frame);
+			return false;
+		}
+		
+		// Keep the raw frame if recording.
+		packet.recording = this.recorder != null;
+		if (packet.recording) packet.raw.loadSource(frame);
+		
+		// Crop the frame if enabled, revalidating the playing area when due.
+		if (this.shouldCrop) {
+			if (this.cropper.hasArea()) this.rectifier.run("Cropper", packet.now, frame.sequence);
+			long span = Tracer.begin();
+			this.cropper.crop(frame);
+			Tracer.end("Crop", frame.sequence, span);
+		}
+		
+		// Convert frame to HSV color space.
+		long span = Tracer.begin();
+		frame.convertTo(packet.hsv, Imgproc.COLOR_BGR2HSV);
+		Tracer.end("Convert", frame.sequence, span);
+		return true;
+	}
+	
+	/**
+	 * Detect the elements, handle the console, and plan and control the vehicle.
+	 *
+	 * @param packet
+	 * @return boolean
+	 */
+	private boolean track(Packet packet) {
+		Frame frame = packet.frame;
+		long now = packet.now;
+		Client client = this.client;
+		Graph graph = this.graph;
+		Targets targets = this.targets;
+		Vehicle vehicle = this.vehicle;
+		Obstacle obstacle = this.obstacle;
+		Overlay overlay = packet.overlay;
+		this.tracking = packet;
+		overlay.clear();
+		
+		// Detect red center obstacle when due.
+		if (this.scheduler.run("Obstacle", now, frame.sequence) && this.log != null) {
+			this.log.points(RunLog.OBSTACLE, frame.captured, frame.sequence, obstacle.points);
+		}
+		obstacle.draw(overlay);
+		
+		// Detect white target circles when due.
+		if (this.scheduler.run("Targets", now, frame.sequence) && this.log != null) {
+			this.log.points(RunLog.TARGETS, frame.captured, frame.sequence, targets.points);
+		}
+		targets.draw(overlay);
+		
+		// Detect blue vehicle triangle when due.
+		if (this.scheduler.run("Vehicle", now, frame.sequence) && this.log != null && vehicle.points != null) {
+			this.log.pose(vehicle.timestamp, vehicle.sequence, vehicle.center.x, vehicle.center.y, vehicle.rotation);
+		}
+		vehicle.draw(overlay);
+		
+		// Check if client is done.
+		if (client != null && client.done && this.doneTimes < 1) {
+			this.doneTimes++;
+			client.done = false;
+		} else if (client != null && client.done) {
+			// Stop run and reset done state.
+			this.running = false;
+			client.done = false;
 			
-			// Crop the frame if enabled.
-			if (Config.Camera.shouldCrop) {
-				cropper.crop(frame);
+			// Emit decending beep.
+			client.beep(2);
+		}
+		
+		// Handle the queued console and endpoint commands.
+		String text;
+		while ((text = this.commands.poll()) != null) {
+			try {
+				this.handle(text);
+			} catch (Exception e) {
+				Logger.error("Command failed: " + text, e);
 			}
+		}
+		
+		// Output running time.
+		if (Config.Client.printTimer && this.start != 0) {
+			Logger.elapsed(System.currentTimeMillis() - this.start);
+		}
+		
+		// Check if graph and client is enabled.
+		if (this.running && vehicle.points != null && graph != null && client != null) {
+			// Handle client movement.
+			long span = Tracer.begin();
+			client.run(vehicle, graph, frame.getSource().cols(), frame.getSource().rows());
+			Tracer.end("Client", frame.sequence, span);
+			span = Tracer.begin();
 			
-			// Convert frame to HSV color space.
-			frame.convertTo(hsv, Imgproc.COLOR_BGR2HSV);
+			// Force find balls if not stalled, has targets, and towards goals.
+			// Used to find balls blocked by the vehicle when going towards goal.
+			boolean forceFind = (! client.stalled && ! targets.points.isEmpty() && graph.towardsGoal);
 			
-			// Detect red center obstacle.
-			obstacle.detect(hsv);
-			obstacle.draw(frame);
+			// Find goal if has no path, and, has no targets, or client is stalled.
+			// Used to move towards goal when vehicle is done, not just at goal, and is stalled or no more targets.
+			boolean findGoal = (client.targets.size() == 0 && ! client.wasTowardsGoal && ! client.doneGoalCheck && (targets.points.isEmpty() || client.stalled));
 			
-			// Detect white target circles.
-			targets.detect(hsv);
-			targets.draw(frame);
+			// Find closest target if has no path, and has targets.
+			// Used to find the next ball when vehicle is done, and more targets exists.
+			boolean findClosest = (client.targets.size() == 0 && ! targets.points.isEmpty());
 			
-			// Detect blue vehicle triangle.
-			vehicle.detect(hsv);
-			vehicle.draw(frame);
+			// Keep the current path if the scene did not change since it was planned.
+			if ((forceFind || findGoal || findClosest) && this.plans.isCached(
+				forceFind || ! findGoal ? PlanCache.CLOSEST : PlanCache.GOAL,
+				obstacle.points, targets.points, vehicle.center, ! client.targets.isEmpty()
+			)) {
+				forceFind = findGoal = findClosest = false;
+			}
 			
-			// Check if client is done.
-			if (client != null && client.done && this.doneTimes < 1) {
-				this.doneTimes++;
-				client.done = false;
-			} else if (client != null && client.done) {
-				// Stop run and reset done state.
-				this.running = false;
-				client.done = false;
-				
-				// Emit decending beep.
-				client.beep(2);
+			// Determine if graph should run for current execution.
+			if (forceFind || findGoal || findClosest) {
+				// Run graph for vision objects.
+				graph.run(
+					obstacle.points, targets.points, vehicle.center,
+					frame.getSource().cols(), frame.getSource().rows()
+				);
 			}
 			
-			// Handle enabeling running state.
-			try { 
-				if (this.reader.ready()) {
-					// Clear the buffer.
-					String text = this.reader.readLine();
-					
-					// Enable the running state.
-					this.running = ! this.running;
-					
-					//@wip
-					if (graph != null) graph.path.clear();
-					if (client != null) client.targets.clear();
-					
-					// Restart the starting time if empty or resetting.
-					if (this.start == 0 || text.equals("reset")) {
-						this.start = System.currentTimeMillis();
-					}
-					
-					// Beep if just starting
-					if (this.running) {
-						client.beep(3);
-					}
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
+			// Make graph create path based on state.
+			if (forceFind) {
+				// Find the closest target.
+				graph.findClosest();
+				client.targets = graph.path;
+			} else if (findGoal) {
+				// Find the left goal.
+				graph.findGoal(Config.Client.goalDirection);
+				client.targets = graph.path;
+			} else if (findClosest) {
+				// Find the closest target.
+				graph.findClosest();
+				client.targets = graph.path;
 			}
-
-			// Output running time.
-			if (Config.Client.printTimer && this.start != 0) {
-				System.out.println(new SimpleDateFormat("mm:ss:SS").format(
-					new Date(System.currentTimeMillis() - this.start)
-				));
+			Tracer.end("Graph", frame.sequence, span);
+			
+			// Log the newly planned path.
+			if ((forceFind || findGoal || findClosest) && this.log != null) {
+				this.log.points(RunLog.PATH, now, frame.sequence, graph.path);
 			}
 			
-			// Check if graph and client is enabled.
-			if (this.running && vehicle.points != null && graph != null && client != null) {
-				// Handle client movement.
-				client.run(vehicle, graph, frame.getSource().cols(), frame.getSource().rows());
-				
-				// Force find balls if not stalled, has targets, and towards goals.
-				// Used to find balls blocked by the vehicle when going towards goal.
-				boolean forceFind = (! client.stalled && ! targets.points.isEmpty() && graph.towardsGoal);
-				
-				// Find goal if has no path, and, has no targets, or client is stalled.
-				// Used to move towards goal when vehicle is done, not just at goal, and is stalled or no more targets.
-				boolean findGoal = (client.targets.size() == 0 && ! client.wasTowardsGoal && ! client.doneGoalCheck && (targets.points.isEmpty() || client.stalled));
-				
-				// Find closest target if has no path, and has targets.
-				// Used to find the next ball when vehicle is done, and more targets exists.
-				boolean findClosest = (client.targets.size() == 0 && ! targets.points.isEmpty());
-				
-				// Determine if graph should run for current execution.
-				if (forceFind || findGoal || findClosest) {
-					// Run graph for vision objects.
-					graph.run(
-						obstacle.points, targets.points, vehicle.center,
-						frame.getSource().cols(), frame.getSource().rows()
-					);
+			// Draw path circles and direction.
+			if (! graph.path.isEmpty()) {
+				// Draw active color for path points.
+				for (Point target : graph.path) {
+					overlay.circle(target, 3, PATH, -1);
 				}
 				
-				// Make graph create path based on state.
-				if (forceFind) {
-					// Find the closest target.
-					graph.findClosest();
-					client.targets = graph.path;
-				} else if (findGoal) {
-					// Find the left goal.
-					graph.findGoal(Config.Client.goalDirection);
-					client.targets = graph.path;
-				} else if (findClosest) {
-					// Find the closest target.
-					graph.findClosest();
-					client.targets = graph.path;
-				}
-				
-				// Draw path circles and direction.
-				if (! graph.path.isEmpty()) {
-					// Draw active color for path points.
-					for (Point target : graph.path) {
-			            Imgproc.circle(frame.getSource(), target, 3, new Scalar(0, 0, 255), -1);
-					}
-					
-					// Draw arrowed line towards next graph point.
-					Imgproc.arrowedLine(frame.getSource(), vehicle.front, graph.path.get(0), new Scalar(0, 0, 255));
-				}
-			} else {
-				// Stop the vehicle from moving.
-				if (client != null) client.stop();
+				// Draw arrowed line towards next graph point.
+				overlay.arrow(vehicle.front, graph.path.get(0), PATH);
 			}
 			
-			// Draw wall and corner unsafe distances.
-			int width = frame.getSource().cols();
-			int height = frame.getSource().rows();
-			
-			int wallDist = Config.Client.wallSafeDistance;
-			Imgproc.line(frame.getSource(), new Point(0, wallDist), new Point(width, wallDist), new Scalar(175, 175, 175));
-			Imgproc.line(frame.getSource(), new Point(0, height-wallDist), new Point(width, height-wallDist), new Scalar(175, 175, 175));
-			Imgproc.line(frame.getSource(), new Point(wallDist, 0), new Point(wallDist, height), new Scalar(175, 175, 175));
-			Imgproc.line(frame.getSource(), new Point(width-wallDist, 0), new Point(width-wallDist, height), new Scalar(175, 175, 175));
-			
-			int cornerDist = Config.Client.cornerSafeDistance;
-			Imgproc.line(frame.getSource(), new Point(cornerDist, 0), new Point(cornerDist, cornerDist), new Scalar(255, 255, 255));
-			Imgproc.line(frame.getSource(), new Point(0, cornerDist), new Point(cornerDist, cornerDist), new Scalar(255, 255, 255));
-			Imgproc.line(frame.getSource(), new Point(width-cornerDist, 0), new Point(width-cornerDist, cornerDist), new Scalar(255, 255, 255));
-			Imgproc.line(frame.getSource(), new Point(width, cornerDist), new Point(width-cornerDist, cornerDist), new Scalar(255, 255, 255));
-			Imgproc.line(frame.getSource(), new Point(cornerDist, height), new Point(cornerDist, height-cornerDist), new Scalar(255, 255, 255));
-			Imgproc.line(frame.getSource(), new Point(0, height-cornerDist), new Point(cornerDist, height-cornerDist), new Scalar(255, 255, 255));
-			Imgproc.line(frame.getSource(), new Point(width, height-cornerDist), new Point(width-cornerDist, height-cornerDist), new Scalar(255, 255, 255));
-			Imgproc.line(frame.getSource(), new Point(width-cornerDist, height), new Point(width-cornerDist, height-cornerDist), new Scalar(255, 255, 255));
-
-			// Calculate frame width and height.
-			int fw = Config.Preview.displayWidth / 2;
-			int fh = (int) (Config.Preview.displayHeight / 1.5);
-			
-			// Show the various frames.
+			// Copy the path for the endpoint.
+			this.plan = graph.path.toArray(new Point[0]);
+		} else {
+			// Stop the vehicle from moving.
+			if (client != null) client.stop();
+		}
+		
+		// Copy the detector masks for the preview, as the detectors move on to the next frame.
+		packet.preview = this.quality.preview;
+		if (packet.preview) {
+			packet.targets.loadSource(targets.frame.getSource());
+			packet.obstacle.loadSource(obstacle.frame.getSource());
+			packet.vehicle.loadSource(vehicle.frame.getSource());
+		}
+		
+		// Adjust the quality to the frame processing time.
+		this.quality.update(System.nanoTime() - packet.processing);
+		this.rectifier.report(now);
+		this.scheduler.report(now);
+		this.plans.report(now);
+		return true;
+	}
+	
+	/**
+	 * Handle a console or endpoint command.
+	 *
+	 * @param text
+	 * @throws Exception
+	 */
+	private void handle(String text) throws Exception {
+		// Dump the stage trace without changing the running state.
+		if (text.equals("trace")) {
+			Logger.info("Trace written to " + Tracer.dump());
+			return;
+		}
+		
+		// Toggle the video recording without changing the running state.
+		if (text.equals("record")) {
+			this.toggleRecording();
+			return;
+		}
+		
+		// Restart the timer and the plan without changing the running state.
+		if (text.equals("reset")) {
+			this.clearPlan();
+			this.start = System.currentTimeMillis();
+			return;
+		}
+		
+		// Skip starting or stopping when already in that state.
+		if ((text.equals("start") && this.running) || (text.equals("stop") && ! this.running)) {
+			return;
+		}
+		
+		// Enable the running state.
+		this.running = ! this.running;
+		
+		//@wip
+		this.clearPlan();
+		
+		// Restart the starting time if empty.
+		if (this.start == 0) {
+			this.start = System.currentTimeMillis();
+		}
+		
+		// Beep if just starting
+		if (this.running && this.client != null) {
+			this.client.beep(3);
+		}
+	}
+	
+	/**
+	 * Forget the planned path, so the next frame plans from scratch.
+	 */
+	private void clearPlan() {
+		if (this.graph != null) this.graph.path.clear();
+		if (this.client != null) this.client.targets.clear();
+		this.plans.clear();
+		this.plan = new Point[0];
+	}
+	
+	/**
+	 * Draw the overlay, record and show the frame.
+	 *
+	 * @param packet
+	 * @return boolean
+	 */
+	private boolean present(Packet packet) {
+		Frame frame = packet.frame;
+		
+		// Draw the markers and the unsafe distances only when watched or recorded.
+		if (packet.preview || packet.recording) {
+			long span = Tracer.begin();
+			packet.overlay.render(frame.getSource());
+			this.layer.apply(frame.getSource());
+			Tracer.end("Overlay", frame.sequence, span);
+		}
+		
+		// Calculate frame width and height.
+		int fw = Config.Preview.displayWidth / 2;
+		int fh = (int) (Config.Preview.displayHeight / 1.5);
+		
+		// Record the raw and annotated frame if recording.
+		Recorder recorder = this.recorder;
+		if (recorder != null && packet.recording) {
+			recorder.begin(packet.raw);
+			recorder.finish(frame);
+		}
+		
+		// Show the various frames if enabled, closing them when disabled.
+		long span = Tracer.begin();
+		if (packet.preview) {
 			frame.show(fw, fh, 0, 0);
-			targets.frame.show(fw, fh, fw, 0);
-			obstacle.frame.show(fw, fh, 0, Config.Preview.displayHeight / 2);
-			vehicle.frame.show(fw, fh, fw, Config.Preview.displayHeight / 2);
-
-			// Add small delay.
-			HighGui.waitKey(1);
+			packet.targets.show(fw, fh, fw, 0);
+			packet.obstacle.show(fw, fh, 0, Config.Preview.displayHeight / 2);
+			packet.vehicle.show(fw, fh, fw, Config.Preview.displayHeight / 2);
+			this.showing = true;
+		} else if (this.showing && ! this.quality.preview) {
+			HighGui.destroyAllWindows();
+			this.showing = false;
+		}
+		
+		// Add small delay.
+		HighGui.waitKey(1);
+		Tracer.end("Preview", frame.sequence, span);
+		
+		// Find the presented frame rate once per second.
+		this.fpsFrames++;
+		if (packet.now - this.fpsStart >= 1000) {
+			this.fps = this.fpsStart == 0 ? 0 : this.fpsFrames * 1000.0 / (packet.now - this.fpsStart);
+			this.fpsStart = packet.now;
+			this.fpsFrames = 0;
+		}
+		
+		// Output the stage totals.
+		this.pipeline.report(packet.now);
+		return true;
+	}
+	
+	/**
+	 * Returns the live metrics and current path as a JSON object.
+	 *
+	 * @return String
+	 */
+	private String toJson() {
+		// Add the run state and rates.
+		StringBuilder json = new StringBuilder(String.format(Locale.ROOT,
+			"{\"running\":%b,\"recording\":%b,\"fps\":%.1f,\"quality\":%d,\"plans\":{\"hits\":%d,\"misses\":%d},",
+			this.running, this.recorder != null, this.fps, this.quality.getLevel(),
+			this.plans.hits.get(), this.plans.misses.get()
+		));
+		
+		// Add the stages.
+		json.append("\"stages\":").append(this.pipeline.toJson()).append(",\"plan\":[");
+		
+		// Add the path points.
+		Point[] plan = this.plan;
+		for (int i = 0; i < plan.length; i++) {
+			json.append(String.format(Locale.ROOT, "%s[%.1f,%.1f]", i > 0 ? "," : "", plan[i].x, plan[i].y));
+		}
+		return json.append("]}").toString();
+	}
+	
+	/**
+	 * Start recording to new files, or stop the running recording.
+	 *
+	 * @throws InterruptedException
+	 */
+	private void toggleRecording() throws InterruptedException {
+		// Stop and close the running recording.
+		if (this.recorder != null) {
+			Recorder recorder = this.recorder;
+			this.recorder = null;
+			recorder.stop();
+			return;
 		}
+		
+		// Start recording to files named by the start time.
+		Recorder recorder = new Recorder(Config.Recorder.directory + "run-" + System.currentTimeMillis());
+		recorder.start();
+		this.recorder = recorder;
+		Logger.info("Recording started");
+	}
+	
+	/**
+	 * Creates the scheduler with the rates and triggers of the detectors,
+	 * and adds the cropper revalidation to the rectifying scheduler.
+	 *
+	 * @param rectifier
+	 * @return Scheduler
+	 */
+	private Scheduler schedule(Scheduler rectifier) {
+		final Scheduler scheduler = new Scheduler();
+		final Cropper cropper = this.cropper;
+		final Obstacle obstacle = this.obstacle;
+		final Targets targets = this.targets;
+		final Vehicle vehicle = this.vehicle;
+		final Client client = this.client;
+		
+		// Revalidate the playing area and refresh the elements within it.
+		rectifier.add("Cropper", Config.Scheduler.cropperInterval, null, new Runnable() {
+			@Override
+			public void run() {
+				cropper.detect(Vision.this.rectifying.frame);
+				scheduler.request("Obstacle");
+				scheduler.request("Targets");
+			}
+		});
+		
+		// Detect the cross rarely, as it barely moves.
+		scheduler.add("Obstacle", Config.Scheduler.obstacleInterval, null, new Runnable() {
+			@Override
+			public void run() {
+				obstacle.detect(Vision.this.tracking.hsv);
+			}
+		});
+		
+		// Detect the balls when the client needs a new path.
+		scheduler.add("Targets", Config.Scheduler.targetsInterval, new Scheduler.Trigger() {
+			@Override
+			public boolean isTriggered() {
+				return client == null || client.stalled || client.targets.isEmpty();
+			}
+		}, new Runnable() {
+			@Override
+			public void run() {
+				targets.detect(Vision.this.tracking.hsv);
+			}
+		});
+		
+		// Detect the vehicle constantly.
+		scheduler.add("Vehicle", Config.Scheduler.vehicleInterval, null, new Runnable() {
+			@Override
+			public void run() {
+				vehicle.detect(Vision.this.tracking.hsv);
+			}
+		});
+		
+		// Return the scheduler.
+		return scheduler;
 	}
 
-}
\ No newline at end of file
+}
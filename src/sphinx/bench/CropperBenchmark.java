@@ -0,0 +1,101 @@
+package sphinx.bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import sphinx.vision.Cropper;
+import sphinx.vision.Frame;
+
+public class CropperBenchmark {
+
+	/**
+	 * The sample lens as <fx, fy, cx, cy, k1, k2, p1, p2, k3>.
+	 *
+	 * @var double[]
+	 */
+	private static final double[] lens = { 520, 515, 322, 238, -0.28, 0.09, 0.0012, -0.0008, -0.01 };
+
+	/**
+	 * The amount of repeated detections.
+	 *
+	 * @var int
+	 */
+	private static final int detections = 50;
+
+	/**
+	 * Checks the lens map against OpenCV and times repeated detections.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		// Load the OpenCV library.
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		// Write the sample calibration.
+		File calibration = File.createTempFile("lens", ".properties");
+		String[] keys = { "fx", "fy", "cx", "cy", "k1", "k2", "p1", "p2", "k3" };
+		try (FileWriter writer = new FileWriter(calibration)) {
+			for (int i = 0; i < keys.length; i++) {
+				writer.write(keys[i] + "=" + lens[i] + "\n");
+			}
+		}
+		Cropper cropper = new Cropper(calibration.getPath());
+		calibration.delete();
+
+		// Undistort a textured frame through the identity warp.
+		Size size = new Size(640, 480);
+		Mat image = new Mat(size, CvType.CV_8UC3);
+		Core.randu(image, 0, 255);
+		Imgproc.GaussianBlur(image, image, new Size(7, 7), 0);
+		Point[] corners = { new Point(0, 0), new Point(639, 0), new Point(639, 479), new Point(0, 479) };
+		cropper.calibrate(corners, corners, size);
+		Frame frame = new Frame("Frame");
+		frame.loadSource(image);
+		cropper.crop(frame);
+
+		// Undistort the same frame through the OpenCV map.
+		Mat camera = new Mat(3, 3, CvType.CV_64FC1);
+		camera.put(0, 0, lens[0], 0, lens[2], 0, lens[1], lens[3], 0, 0, 1);
+		MatOfDouble distortion = new MatOfDouble(lens[4], lens[5], lens[6], lens[7], lens[8]);
+		Mat mapX = new Mat(), mapY = new Mat(), expected = new Mat();
+		Calib3d.initUndistortRectifyMap(camera, distortion, Mat.eye(3, 3, CvType.CV_64FC1), camera, size, CvType.CV_32FC1, mapX, mapY);
+		Imgproc.remap(image, expected, mapX, mapY, Imgproc.INTER_LINEAR);
+
+		// Compare the results.
+		Mat difference = new Mat();
+		Core.absdiff(frame.getSource(), expected, difference);
+		double mean = Core.mean(difference).val[0];
+		double max = Core.minMaxLoc(difference.reshape(1)).maxVal;
+		System.out.println(String.format("Lens map vs OpenCV: mean %.4f, max %.0f levels", mean, max));
+		if (mean > 0.5) throw new IllegalStateException("Lens map differs from OpenCV");
+
+		// Time detecting an unchanged field, which keeps the maps after the first.
+		Mat field = new Mat(size, CvType.CV_8UC3, new Scalar(90, 90, 90));
+		Imgproc.rectangle(field, new Point(40, 30), new Point(600, 450), new Scalar(0, 0, 220), 12);
+		Frame input = new Frame("Field");
+		input.loadSource(field);
+		long start = System.nanoTime();
+		cropper.detect(input);
+		long first = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < detections; i++) {
+			cropper.detect(input);
+		}
+		long repeated = (System.nanoTime() - start) / detections;
+		System.out.println(String.format("Detect: first %.2f ms, unchanged %.2f ms, area %s",
+			first / 1e6, repeated / 1e6, cropper.hasArea() ? "found" : "missing"));
+	}
+
+}
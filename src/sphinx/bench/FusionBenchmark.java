@@ -0,0 +1,74 @@
+package sphinx.bench;
+
+import org.opencv.core.Core;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import sphinx.Config;
+import sphinx.elements.Obstacle;
+import sphinx.elements.Targets;
+import sphinx.elements.Vehicle;
+import sphinx.vision.Camera;
+import sphinx.vision.Frame;
+import sphinx.vision.Fusion;
+
+public class FusionBenchmark {
+
+	/**
+	 * The timed frames.
+	 *
+	 * @var int
+	 */
+	private static final int frames = 150;
+
+	/**
+	 * Runs the detectors on fused video files and prints the results.
+	 * Pass two video paths to use instead of the configured sources.
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		// Load the OpenCV library.
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		// Fuse the passed or configured sources.
+		String[] sources = args.length >= 2 ? args : Config.Fusion.sources;
+		Camera camera = new Camera(new Fusion(
+			sources, Config.Fusion.corners, Config.Fusion.field,
+			new Size(Config.Fusion.width, Config.Fusion.height)
+		));
+
+		// Initialize the detectors and frame holders.
+		Obstacle obstacle = new Obstacle();
+		Targets targets = new Targets();
+		Vehicle vehicle = new Vehicle();
+		Frame frame = new Frame("Frame");
+		Frame hsv = new Frame("HSV");
+
+		// Run the detectors on the fused frames.
+		long start = System.nanoTime();
+		int balls = 0, found = 0;
+		for (int i = 0; i < frames; i++) {
+			camera.capture(frame);
+			frame.convertTo(hsv, Imgproc.COLOR_BGR2HSV);
+			obstacle.detect(hsv);
+			targets.detect(hsv);
+			vehicle.detect(hsv);
+
+			// Count the detections.
+			balls += targets.points.size();
+			if (vehicle.points != null) found++;
+		}
+
+		// Output the results.
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("Canvas: %dx%d from %d sources",
+			frame.getSource().cols(), frame.getSource().rows(), sources.length
+		));
+		System.out.println(String.format("Loop: %.1f frames/s", frames / seconds));
+		System.out.println(String.format("Balls: %.1f per frame, vehicle found in %d of %d frames",
+			(double) balls / frames, found, frames
+		));
+	}
+
+}
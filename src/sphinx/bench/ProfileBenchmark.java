@@ -0,0 +1,148 @@
+package sphinx.bench;
+
+import sphinx.Config;
+import sphinx.device.Profile;
+
+public class ProfileBenchmark {
+
+	/**
+	 * The control loop period in millis.
+	 *
+	 * @var int
+	 */
+	private static final int period = 33;
+
+	/**
+	 * The delay from capture until a command reaches the motors in millis.
+	 *
+	 * @var int
+	 */
+	private static final int latency = Config.Camera.captureDelay + 40;
+
+	/**
+	 * The longest simulated time per waypoint in millis.
+	 *
+	 * @var int
+	 */
+	private static final int timeout = 10000;
+
+	/**
+	 * Runs the waypoint simulations and prints the results.
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		// Output the driving results.
+		System.out.println("Move (px)    two-level ms / overshoot px    profile ms / overshoot px");
+		for (double distance : new double[] { 20, 40, 80, 160, 320, 480 }) {
+			double[] level = simulate(distance, false, false);
+			double[] profile = simulate(distance, true, false);
+			System.out.println(String.format("%9.0f    %9.0f / %6.1f              %9.0f / %6.1f",
+				distance, level[0], level[1], profile[0], profile[1]));
+		}
+
+		// Output the turning results.
+		System.out.println();
+		System.out.println("Turn (deg)   two-level ms / overshoot deg   profile ms / overshoot deg");
+		for (double angle : new double[] { 10, 20, 45, 90, 180 }) {
+			double[] level = simulate(angle, false, true);
+			double[] profile = simulate(angle, true, true);
+			System.out.println(String.format("%9.0f    %9.0f / %6.1f              %9.0f / %6.1f",
+				angle, level[0], level[1], profile[0], profile[1]));
+		}
+	}
+
+	/**
+	 * Returns the settle time and overshoot for reaching a single waypoint.
+	 *
+	 * @param goal pixels or vehicle degrees
+	 * @param profiled
+	 * @param turning
+	 * @return double[]
+	 */
+	private static double[] simulate(double goal, boolean profiled, boolean turning) {
+		// Find the motor degrees per goal unit.
+		double scale = turning ? Profile.fromRotation(1) : Profile.fromPixels(1);
+		double tolerance = turning ? Config.Client.degreeOffset : Config.Client.insideDistOffset;
+
+		// Prepare the profile and command history.
+		Profile profile = turning
+			? new Profile(Config.Client.profileMinTurnSpeed, Config.Client.turnSpeed, Config.Client.turnAcceleration, Config.Client.turnDeceleration)
+			: new Profile(Config.Client.profileMinSpeed, Config.Client.moveSpeed, Config.Client.maxAcceleration, Config.Client.maxDeceleration);
+		double[] commands = new double[timeout + latency + 1];
+		double[] positions = new double[timeout + 1];
+
+		// Prepare the motor state in degrees.
+		double position = 0, speed = 0, command = 0;
+		double change = Config.Position.acceleration / 1000.0;
+		int settled = -1;
+
+		// Step through every millisecond.
+		for (int t = 0; t < timeout; t++) {
+			// Run the controller on the observed position.
+			if (t % period == 0) {
+				double observed = positions[Math.max(0, t - Config.Camera.captureDelay)];
+				double remaining = goal - observed / scale;
+				double next = control(remaining, tolerance, profiled, turning, profile, t);
+
+				// Save the command for when it reaches the motors.
+				for (int k = t + latency - Config.Camera.captureDelay; k < commands.length; k++) {
+					commands[k] = next;
+				}
+			}
+
+			// Accelerate the motor towards the command.
+			command = commands[t];
+			speed += Math.max(-change, Math.min(change, command - speed));
+			position += speed / 1000;
+			positions[t] = position;
+
+			// Save the first time the motor rests at the waypoint.
+			boolean inside = ! turning || Math.abs(goal - position / scale) <= tolerance;
+			if (t > latency && speed == 0 && command == 0 && inside) {
+				settled = t;
+				break;
+			}
+		}
+
+		// Return the time and the overshoot past the goal.
+		return new double[] { settled < 0 ? timeout : settled, position / scale - goal };
+	}
+
+	/**
+	 * Returns the signed motor speed chosen by the controller.
+	 *
+	 * @param remaining
+	 * @param tolerance
+	 * @param profiled
+	 * @param turning
+	 * @param profile
+	 * @param now
+	 * @return double
+	 */
+	private static double control(double remaining, double tolerance, boolean profiled, boolean turning, Profile profile, long now) {
+		// Stop when inside the tolerance.
+		if (Math.abs(remaining) <= tolerance || (! turning && remaining <= tolerance)) {
+			profile.reset();
+			return 0;
+		}
+
+		// Find the speed from the profile.
+		double direction = Math.signum(remaining);
+		if (profiled) {
+			double degrees = turning
+				? Profile.fromRotation(Math.abs(remaining) - tolerance)
+				: Profile.fromPixels(Math.abs(remaining));
+			return direction * profile.next(degrees, now);
+		}
+
+		// Find the speed from the two levels.
+		if (turning) {
+			return direction * Config.Client.turnSpeed;
+		}
+		return remaining < Config.Client.slowThreshold
+			? Config.Client.slowSpeed
+			: Config.Client.moveSpeed;
+	}
+
+}
@@ -0,0 +1,125 @@
+package sphinx.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.opencv.core.Point;
+
+import sphinx.Config;
+import sphinx.RunLog;
+
+public class RunLogBenchmark {
+
+	/**
+	 * The amount of frames written.
+	 *
+	 * @var int
+	 */
+	private static final int frames = 20000;
+
+	/**
+	 * The millis between the written frames.
+	 *
+	 * @var int
+	 */
+	private static final int period = 33;
+
+	/**
+	 * Writes a run log, reads it back and prints the write time per record.
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		// Write the log in a temporary directory.
+		File directory = Files.createTempDirectory("runlog").toFile();
+		String path = new File(directory, "run").getPath();
+		RunLog log = new RunLog(path);
+
+		// Write a pose, targets and a sent command per frame.
+		ArrayList<Point> targets = new ArrayList<Point>();
+		StringBuilder line = new StringBuilder();
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			long time = 1000 + (long) i * period;
+			targets.clear();
+			for (int k = 0; k < i % 5; k++) {
+				targets.add(new Point(i + k, k));
+			}
+			line.setLength(0);
+			line.append(i).append(' ').append(time).append(" move ").append(i % 400);
+
+			log.pose(time, i, i * 0.5, i * 0.25, i % 360);
+			log.points(RunLog.TARGETS, time, i, targets);
+			log.command(RunLog.SENT, time, i, line);
+		}
+		long nanos = System.nanoTime() - start;
+		log.close();
+
+		// Read every record back in order.
+		RunLog.Reader reader = new RunLog.Reader(path);
+		int records = 0;
+		while (reader.next()) {
+			check(reader, records / 3, records % 3);
+			records++;
+		}
+		check(records == frames * 3, "Read " + records + " of " + frames * 3 + " records");
+
+		// Seek into the middle and continue from the index entry before it.
+		int middle = frames / 2;
+		reader.seek(1000 + (long) middle * period);
+		check(reader.next(), "Nothing after seeking");
+		long first = reader.getSequence();
+		check(first <= middle && middle - first <= Config.Log.indexInterval / period + 1, "Seeked to frame " + first + " for " + middle);
+		while (reader.getSequence() < middle && reader.next());
+		check(reader, middle, 0);
+
+		// Output the results and remove the files.
+		System.out.println(String.format("Round trip of %d records passed, %.0f ns per record written, %d dropped",
+			records, nanos / (double) records, log.dropped.get()));
+		new File(path + ".log").delete();
+		new File(path + ".idx").delete();
+		directory.delete();
+	}
+
+	/**
+	 * Check the current record against what was written for the frame.
+	 *
+	 * @param reader
+	 * @param frame
+	 * @param kind 0 for pose, 1 for targets and 2 for the command
+	 */
+	private static void check(RunLog.Reader reader, int frame, int kind) {
+		long time = 1000 + (long) frame * period;
+		check(reader.getTime() == time && reader.getSequence() == frame, "Wrong header at frame " + frame);
+		switch (kind) {
+			case 0:
+				double[] pose = reader.getPose();
+				check(reader.getType() == RunLog.POSE && pose[0] == frame * 0.5 && pose[1] == frame * 0.25 && pose[2] == frame % 360, "Wrong pose at frame " + frame);
+				break;
+			case 1:
+				Point[] points = reader.getPoints();
+				check(reader.getType() == RunLog.TARGETS && points.length == frame % 5, "Wrong targets at frame " + frame);
+				for (int k = 0; k < points.length; k++) {
+					check(points[k].x == (float) (frame + k) && points[k].y == k, "Wrong target at frame " + frame);
+				}
+				break;
+			case 2:
+				String text = reader.getText();
+				check(reader.getType() == RunLog.SENT && text.equals(frame + " " + time + " move " + frame % 400), "Wrong command at frame " + frame);
+				break;
+		}
+	}
+
+	/**
+	 * Stop with the message if the condition fails.
+	 *
+	 * @param condition
+	 * @param message
+	 */
+	private static void check(boolean condition, String message) {
+		if (! condition) throw new IllegalStateException(message);
+	}
+
+}
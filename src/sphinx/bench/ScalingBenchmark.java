@@ -0,0 +1,123 @@
+package sphinx.bench;
+
+import org.opencv.core.Core;
+import org.opencv.imgproc.Imgproc;
+
+import sphinx.elements.Obstacle;
+import sphinx.elements.Targets;
+import sphinx.elements.Vehicle;
+import sphinx.vision.Arena;
+import sphinx.vision.Camera;
+import sphinx.vision.Cropper;
+import sphinx.vision.Frame;
+
+public class ScalingBenchmark {
+
+	/**
+	 * The rendered frame resolutions as <width, height>.
+	 *
+	 * @var int[][]
+	 */
+	private static final int[][] resolutions = { { 640, 480 }, { 1280, 720 }, { 1920, 1080 } };
+
+	/**
+	 * The amounts of balls on the field.
+	 *
+	 * @var int[]
+	 */
+	private static final int[] amounts = { 0, 10, 50, 100, 200 };
+
+	/**
+	 * The frames skipped before timing.
+	 *
+	 * @var int
+	 */
+	private static final int warmup = 5;
+
+	/**
+	 * The timed frames per case.
+	 *
+	 * @var int
+	 */
+	private static final int frames = 30;
+
+	/**
+	 * Times each detector on synthetic frames and prints the results.
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		// Load the OpenCV library.
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		// Output the table header.
+		System.out.println(String.format("%-10s %6s %10s %10s %10s %10s %8s",
+			"Size", "Balls", "Cropper", "Obstacle", "Targets", "Vehicle", "Found"
+		));
+
+		// Run every resolution and ball amount.
+		for (int[] resolution : resolutions) {
+			for (int balls : amounts) {
+				run(resolution[0], resolution[1], balls);
+			}
+		}
+	}
+
+	/**
+	 * Time the detectors for one case and print the average millis.
+	 *
+	 * @param width
+	 * @param height
+	 * @param balls
+	 */
+	private static void run(int width, int height, int balls) {
+		// Feed the camera with a synthetic arena.
+		Arena arena = new Arena(width, height, balls, 42);
+		Camera camera = new Camera(arena);
+
+		// Initialize the detectors and frame holders.
+		Cropper cropper = new Cropper();
+		Obstacle obstacle = new Obstacle();
+		Targets targets = new Targets();
+		Vehicle vehicle = new Vehicle();
+		Frame frame = new Frame("Frame");
+		Frame hsv = new Frame("HSV");
+
+		// Time each detector over the frames.
+		long[] nanos = new long[4];
+		for (int i = 0; i < warmup + frames; i++) {
+			long[] times = new long[5];
+			camera.capture(frame);
+
+			times[0] = System.nanoTime();
+			cropper.detect(frame);
+			times[1] = System.nanoTime();
+
+			frame.convertTo(hsv, Imgproc.COLOR_BGR2HSV);
+			long converted = System.nanoTime();
+
+			obstacle.detect(hsv);
+			times[2] = System.nanoTime();
+			targets.detect(hsv);
+			times[3] = System.nanoTime();
+			vehicle.detect(hsv);
+			times[4] = System.nanoTime();
+
+			// Skip the warmup frames.
+			if (i < warmup) continue;
+			nanos[0] += times[1] - times[0];
+			nanos[1] += times[2] - converted;
+			nanos[2] += times[3] - times[2];
+			nanos[3] += times[4] - times[3];
+		}
+
+		// Output the average millis per frame.
+		System.out.println(String.format("%-10s %6d %10.2f %10.2f %10.2f %10.2f %4d/%-3d",
+			width + "x" + height, balls,
+			nanos[0] / 1e6 / frames, nanos[1] / 1e6 / frames,
+			nanos[2] / 1e6 / frames, nanos[3] / 1e6 / frames,
+			targets.points.size(), arena.points.size()
+		));
+	}
+
+}
@@ -0,0 +1,213 @@
+package sphinx.bench;
+
+import java.util.ArrayList;
+
+import org.opencv.core.Core;
+import org.opencv.core.Point;
+
+import sphinx.Config;
+import sphinx.Graph;
+import sphinx.device.Client;
+import sphinx.device.Simulator;
+import sphinx.elements.Vehicle;
+
+public class SimulatorBenchmark {
+
+	/**
+	 * The control loop period in millis.
+	 *
+	 * @var int
+	 */
+	private static final int period = 33;
+
+	/**
+	 * The longest run before giving up in millis.
+	 *
+	 * @var int
+	 */
+	private static final int timeout = 60000;
+
+	/**
+	 * The millis the goal run continues after reaching the goal, covering ejecting and reversing.
+	 *
+	 * @var int
+	 */
+	private static final int settle = 9000;
+
+	/**
+	 * The millis without camera frames after the first waypoint, letting the brick watchdog stop the motors.
+	 *
+	 * @var int
+	 */
+	private static final int gap = 800;
+
+	/**
+	 * The goal approach and goal points near the left wall.
+	 *
+	 * @var Point
+	 */
+	private static final Point approach = new Point(130, 240), goal = new Point(70, 240);
+
+	/**
+	 * The distance from the center to the triangle front in pixels.
+	 *
+	 * @var double
+	 */
+	private static final double size = 30;
+
+	/**
+	 * Runs the client against the simulator and prints the results.
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		// Load the OpenCV library.
+		System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+
+		// Start the simulator and connect the client.
+		int port = Config.Client.port + 1;
+		Simulator simulator = new Simulator(port, Config.Simulator.latency);
+		simulator.start();
+		Thread.sleep(200);
+		Client client = new Client("127.0.0.1", port);
+
+		// Prepare the waypoints around the field.
+		client.targets = new ArrayList<Point>();
+		client.targets.add(new Point(480, 240));
+		client.targets.add(new Point(480, 380));
+		client.targets.add(new Point(160, 380));
+		client.targets.add(new Point(160, 100));
+		client.targets.add(new Point(320, 100));
+		int waypoints = client.targets.size();
+
+		// Prepare the vehicle and the pose history used as camera.
+		Graph graph = new Graph();
+		Vehicle vehicle = new Vehicle();
+		ArrayList<double[]> poses = new ArrayList<double[]>();
+
+		// Run the control loop until the path is done.
+		long start = System.currentTimeMillis();
+		long last = start, resumed = 0, recovered = 0;
+		int remaining = waypoints, frames = 0;
+		while (! client.targets.isEmpty() && System.currentTimeMillis() - start < timeout) {
+			long now = frame(simulator, client, graph, vehicle, poses);
+			frames++;
+
+			// Wait for the pickup and the wheels to run again after the camera gap.
+			double[] motors = simulator.getMotors();
+			if (resumed > 0 && recovered == 0 && motors[2] > 0 && (motors[0] != 0 || motors[1] != 0)) {
+				recovered = now;
+			}
+
+			// Output the time of each reached waypoint.
+			if (client.targets.size() < remaining) {
+				remaining = client.targets.size();
+				System.out.println(String.format("Waypoint %d reached after %d ms", waypoints - remaining, now - last));
+				last = now;
+
+				// Stop sending frames once after the first waypoint.
+				if (resumed == 0) {
+					Thread.sleep(gap);
+					resumed = System.currentTimeMillis();
+					last += gap;
+				}
+			}
+		}
+		
+		// Output the run results.
+		double seconds = (System.currentTimeMillis() - start) / 1000.0;
+		System.out.println(String.format("Time to goal: %.2f s (%d of %d waypoints)", seconds, waypoints - remaining, waypoints));
+		System.out.println(String.format("Control loop: %.1f frames/s", frames / seconds));
+		System.out.println(String.format("Commands executed: %.1f /s, stalls: %d", simulator.commands.get() / seconds, simulator.stalls.get()));
+		System.out.println(String.format("RTT: %.2f ms (deviation %.2f ms)", client.latency.getRtt(), client.latency.getDeviation()));
+		System.out.println(String.format("Camera gap: %d watchdog halts, %s",
+			simulator.halts.get(), recovered > 0 ? "recovered after " + (recovered - resumed) + " ms" : "not recovered"));
+
+		// Drive to the goal, eject the balls and reverse, measuring the timed manoeuvres.
+		graph.towardsGoal = true;
+		client.targets.add(approach);
+		client.targets.add(goal);
+		long goalStart = System.currentTimeMillis(), reached = 0, ejecting = 0, reversing = 0;
+		while (System.currentTimeMillis() - goalStart < timeout && (reached == 0 || System.currentTimeMillis() - reached < settle)) {
+			long now = frame(simulator, client, graph, vehicle, poses);
+			if (reached == 0 && client.wasTowardsGoal) reached = now;
+
+			// Sum the time the pickup runs backwards and the wheels reverse.
+			double[] motors = simulator.getMotors();
+			if (motors[2] < 0) ejecting += period;
+			if (motors[0] < 0 && motors[1] < 0) reversing += period;
+		}
+
+		// Output the goal results.
+		System.out.println(String.format("Goal: %s after %.2f s, ejected %d ms, reversed %d ms, watchdog halts: %d",
+			reached > 0 ? "reached" : "missed", ((reached > 0 ? reached : System.currentTimeMillis()) - goalStart) / 1000.0,
+			ejecting, reversing, simulator.halts.get()));
+
+		// Stop the simulated vehicle.
+		client.stop();
+		System.exit(0);
+	}
+
+	/**
+	 * Run one control frame on the pose seen by the delayed camera and wait for the next frame.
+	 *
+	 * @param simulator
+	 * @param client
+	 * @param graph
+	 * @param vehicle
+	 * @param poses
+	 * @return long the millis of the frame
+	 * @throws InterruptedException
+	 */
+	private static long frame(Simulator simulator, Client client, Graph graph, Vehicle vehicle, ArrayList<double[]> poses) throws InterruptedException {
+		// Record the pose with the capture time.
+		long now = System.currentTimeMillis();
+		double[] pose = simulator.getPose();
+		poses.add(new double[] { now, pose[0], pose[1], pose[2] });
+
+		// Use the pose captured the capture delay ago.
+		double[] captured = poses.get(0);
+		while (poses.size() > 1 && poses.get(1)[0] <= now - Config.Camera.captureDelay) {
+			poses.remove(0);
+			captured = poses.get(0);
+		}
+		place(vehicle, captured[1], captured[2], captured[3], (long) captured[0]);
+
+		// Run the client movement.
+		client.run(vehicle, graph, Config.Camera.width, Config.Camera.height);
+
+		// Wait for the next frame.
+		Thread.sleep(Math.max(0, period - (System.currentTimeMillis() - now)));
+		return now;
+	}
+
+	/**
+	 * Set the vehicle triangle at the passed pose.
+	 *
+	 * @param vehicle
+	 * @param x
+	 * @param y
+	 * @param rotation
+	 * @param time
+	 */
+	private static void place(Vehicle vehicle, double x, double y, double rotation, long time) {
+		// Find the heading direction.
+		double rad = rotation * (Math.PI / 180);
+		double cos = Math.cos(rad), sin = Math.sin(rad);
+
+		// Create the front and the two back corners around the center.
+		Point front = new Point(x + size * cos, y + size * sin);
+		Point backLeft = new Point(x - size / 2 * cos + size / 2 * sin, y - size / 2 * sin - size / 2 * cos);
+		Point backRight = new Point(x - size / 2 * cos - size / 2 * sin, y - size / 2 * sin + size / 2 * cos);
+
+		// Save the pose on the vehicle.
+		vehicle.points = new Point[] { front, backLeft, backRight };
+		vehicle.front = front;
+		vehicle.back = new Point(x - size / 2 * cos, y - size / 2 * sin);
+		vehicle.center = new Point(x, y);
+		vehicle.rotation = rotation;
+		vehicle.timestamp = time;
+	}
+
+}
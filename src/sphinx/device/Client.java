@@ -1,16 +1,21 @@
 package sphinx.device;
 
-import java.io.InputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.opencv.core.Point;
 import org.opencv.imgproc.Imgproc;
 
 import sphinx.Config;
 import sphinx.Graph;
+import sphinx.Logger;
+import sphinx.RunLog;
+import sphinx.Tracer;
 import sphinx.elements.Vehicle;
 
 public class Client {
@@ -148,19 +153,12 @@ public class Client {
 	 */
 	Socket socket;
 	
-	/**
-	 * The incoming stream using for the scanner.
-	 *
-	 * @var InputStream
-	 */
-	InputStream stream;
-	
 	/**
 	 * The input stream for the socket.
 	 *
-	 * @var Scanner
+	 * @var BufferedReader
 	 */
-	Scanner input;
+	BufferedReader input;
 	
 	/**
 	 * The output stream for the socket.
@@ -169,6 +167,128 @@ public class Client {
 	 */
 	PrintWriter output;
 	
+	/**
+	 * The reused line of the sent commands.
+	 *
+	 * @var StringBuilder
+	 */
+	private StringBuilder line = new StringBuilder(256);
+	
+	/**
+	 * The characters written to the output.
+	 *
+	 * @var char[]
+	 */
+	private char[] chars = new char[256];
+	
+	/**
+	 * The sequence number of the last sent command.
+	 *
+	 * @var long
+	 */
+	long sequence = 0;
+	
+	/**
+	 * The millis when the last command was sent.
+	 *
+	 * @var long
+	 */
+	long sent = 0;
+	
+	/**
+	 * The number of the capture the current commands are based on.
+	 *
+	 * @var long
+	 */
+	long frame = 0;
+	
+	/**
+	 * The run log of sent and received commands, or null.
+	 *
+	 * @var RunLog
+	 */
+	public RunLog log;
+	
+	/**
+	 * The rolling round trip and clock offset estimate.
+	 *
+	 * @var Latency
+	 */
+	public Latency latency = new Latency(Config.Client.latencyWeight);
+	
+	/**
+	 * The incoming server events waiting to be handled.
+	 *
+	 * @var ConcurrentLinkedQueue<String>
+	 */
+	ConcurrentLinkedQueue<String> events = new ConcurrentLinkedQueue<String>();
+	
+	/**
+	 * The velocity profile for moving towards targets.
+	 *
+	 * @var Profile
+	 */
+	Profile moveProfile = new Profile(
+		Config.Client.profileMinSpeed, Config.Client.moveSpeed,
+		Config.Client.maxAcceleration, Config.Client.maxDeceleration
+	);
+	
+	/**
+	 * The velocity profile for turning towards targets.
+	 *
+	 * @var Profile
+	 */
+	Profile turnProfile = new Profile(
+		Config.Client.profileMinTurnSpeed, Config.Client.turnSpeed,
+		Config.Client.turnAcceleration, Config.Client.turnDeceleration
+	);
+	
+	/**
+	 * The pose predictor for the commanded motion.
+	 *
+	 * @var Predictor
+	 */
+	public Predictor predictor = new Predictor();
+	
+	/**
+	 * The rounded coordinates of the path sent to the brick.
+	 *
+	 * @var long[]
+	 */
+	long[] pathSent = new long[0];
+	
+	/**
+	 * The size of the path sent to the brick, or -1 if not following.
+	 *
+	 * @var int
+	 */
+	int pathSize = -1;
+	
+	/**
+	 * The arrival state of the brick at the end of the sent path.
+	 *
+	 * @var boolean
+	 */
+	boolean arrived = false;
+	
+	/**
+	 * The millis when the last pose correction was sent.
+	 *
+	 * @var long
+	 */
+	long poseSent = 0;
+	
+	/**
+	 * The path follower driving curves between targets.
+	 *
+	 * @var Pursuit
+	 */
+	Pursuit pursuit = new Pursuit(
+		Config.Client.lookahead,
+		Config.Position.wheelBase * Config.Position.pixelsPerCm,
+		Config.Client.spinAngle
+	);
+	
 	/**
 	 * The millis counter used for pausing.
 	 *
@@ -222,31 +342,41 @@ public class Client {
 	 * Attempt to connect to the EV3 and open stream.
 	 */
 	public Client() {
+		this(Config.Client.ip, Config.Client.port);
+	}
+	
+	/**
+	 * Attempt to connect to the passed server and open stream.
+	 *
+	 * @param ip
+	 * @param port
+	 */
+	public Client(String ip, int port) {
 		// Skip socket opening if skipping.
 		if (Config.Client.skip) return;
 		
 		// Attempt to open socket.
 		try {
 			// Show connection warning.
-			System.out.println("Attempting to connect to server!");
+			Logger.info("Attempting to connect to server!");
 			
 			// Open socket connection.
-			this.socket = new Socket(Config.Client.ip, Config.Client.port);
+			this.socket = new Socket(ip, port);
 
 			// Open input and output steams.
-			this.stream = this.socket.getInputStream();
-			this.input = new Scanner(this.stream);
-
+			this.input = new BufferedReader(new InputStreamReader(this.socket.getInputStream()));
 			this.output = new PrintWriter(this.socket.getOutputStream(), true);
 			
+			// Start receiving server events.
+			Thread receiver = new Thread(new Receiver(), "Client receiver");
+			receiver.setDaemon(true);
+			receiver.start();
+			
 			// Show connection complete.
-			System.out.println("Successfully connected to server!");
+			Logger.info("Successfully connected to server!");
 		} catch (Exception e) {
-			// Print the exceptions stack.
-			e.printStackTrace();
-			
-			// Show connection failed error.
-			System.out.println("Failed to connect to server!");
+			// Show connection failed error with the exceptions stack.
+			Logger.error("Failed to connect to server!", e);
 			
 			// Kill program if exit on failure is enabled.
 			if (Config.Client.exitFailed) {
@@ -261,8 +391,15 @@ public class Client {
 	 * @param vehicle
 	 */
 	public void run(Vehicle vehicle, Graph graph, int width, int height) {
-		// Skip if currently paused.
-		if (this.pauser > System.currentTimeMillis()) return;
+		// Save the capture the commands are based on.
+		this.frame = vehicle.sequence;
+		
+		// Skip if currently paused, keeping the brick watchdog from stopping the manoeuvre.
+		long now = System.currentTimeMillis();
+		if (this.pauser > now) {
+			if (now - this.sent >= Config.Client.keepInterval) this.send("keep");
+			return;
+		}
 		
 		// @wip
 		if (this.nextReverse) {
@@ -306,6 +443,15 @@ public class Client {
 		// Reset was towards goal.
 		this.wasTowardsGoal = false;
 		
+		// Steer by the pose expected when the next command arrives.
+		Vehicle measured = vehicle;
+		vehicle = this.predict(vehicle);
+		
+		// Pass targets already behind the followed path point.
+		if (Config.Client.pursuit) {
+			this.passTargets(vehicle);
+		}
+		
 		// Get the first target or skip.
 		Point target = this.targets.get(0);
 		
@@ -327,7 +473,13 @@ public class Client {
 		}
 		
 		// Handle the movement and collecting.
-		this.handleMovement(Math.abs(distance), rotation);
+		if (Config.Client.onBrick) {
+			this.handleBrick(measured);
+		} else if (Config.Client.pursuit) {
+			this.handlePursuit(Math.abs(distance), vehicle);
+		} else {
+			this.handleMovement(Math.abs(distance), rotation);
+		}
 		this.handleCollecting(Math.abs(distance), rotation);
 		
 		// Handle target pathing.
@@ -363,6 +515,13 @@ public class Client {
 				? this.turnSlowSpeed
 				: this.turnSpeed;
 			
+			// Determine the turning speed from the remaining angle.
+			if (Config.Client.profile) {
+				double remaining = Profile.fromRotation(Math.abs(rotation) - degree);
+				turn = (int) Math.round(this.turnProfile.next(remaining, System.currentTimeMillis()));
+				this.moveProfile.reset();
+			}
+			
 			// Turn the vehicle to the found degree.
 			this.turn((int) rotation, turn);
 			
@@ -375,10 +534,158 @@ public class Client {
 			? this.slowSpeed
 			: this.moveSpeed;
 		
+		// Determine movement speed from the remaining distance.
+		if (Config.Client.profile) {
+			double remaining = Profile.fromPixels(distance);
+			speed = (int) Math.round(this.moveProfile.next(remaining, System.currentTimeMillis()));
+			this.turnProfile.reset();
+		}
+		
 		// Make vehicle move at found speed.
 		this.move(speed);
 	}
 
+	/**
+	 * Handles the movement by following the path in curves.
+	 *
+	 * @param distance
+	 * @param vehicle
+	 */
+	private void handlePursuit(double distance, Vehicle vehicle) {
+		// Copy the target path points.
+		int count = this.targets.size();
+		double[] xs = new double[count];
+		double[] ys = new double[count];
+		for (int i = 0; i < count; i++) {
+			xs[i] = this.targets.get(i).x;
+			ys[i] = this.targets.get(i).y;
+		}
+		
+		// Determine movement speed based on distance to the last target.
+		int speed = (count <= 1 && this.shouldSlow(distance))
+			? this.slowSpeed
+			: this.moveSpeed;
+		
+		// Determine movement speed from the remaining path length.
+		if (Config.Client.profile) {
+			double remaining = distance;
+			for (int i = 1; i < count; i++) {
+				remaining += Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+			}
+			speed = (int) Math.round(this.moveProfile.next(Profile.fromPixels(remaining), System.currentTimeMillis()));
+		}
+		
+		// Find the wheel speeds towards the lookahead point.
+		double[] wheels = this.pursuit.wheels(
+			vehicle.center.x, vehicle.center.y, vehicle.rotation,
+			xs, ys, 0, count, speed, this.turnSpeed
+		);
+		
+		// Make vehicle drive the found arc.
+		this.drive((int) Math.round(wheels[0]), (int) Math.round(wheels[1]));
+	}
+	
+	/**
+	 * Handles the movement by letting the brick follow the path.
+	 *
+	 * @param vehicle the measured pose
+	 */
+	private void handleBrick(Vehicle vehicle) {
+		// Find the pose measurement time on the brick clock.
+		long now = System.currentTimeMillis();
+		long time = this.latency.toServer(vehicle.timestamp);
+		int x = (int) Math.round(vehicle.center.x);
+		int y = (int) Math.round(vehicle.center.y);
+		int rotation = (int) Math.round(vehicle.rotation);
+		
+		// Send the path unless the brick already follows it.
+		if (! this.isFollowing()) {
+			// Add the speeds and the starting pose.
+			long[] params = new long[6 + this.targets.size() * 2];
+			params[0] = this.moveSpeed;
+			params[1] = this.turnSpeed;
+			params[2] = time;
+			params[3] = x;
+			params[4] = y;
+			params[5] = rotation;
+			
+			// Add the path points.
+			for (int i = 0; i < this.targets.size(); i++) {
+				params[6 + i * 2] = Math.round(this.targets.get(i).x);
+				params[7 + i * 2] = Math.round(this.targets.get(i).y);
+			}
+			
+			// Send the path and save what was sent.
+			this.send("path", params);
+			this.pathSize = this.targets.size();
+			this.pathSent = Arrays.copyOfRange(params, 6, params.length);
+			this.arrived = false;
+			this.poseSent = now;
+			return;
+		}
+		
+		// Stream the pose correction at the pose interval.
+		if (now - this.poseSent >= Config.Client.poseInterval) {
+			this.send("pose", x, y, rotation, time);
+			this.poseSent = now;
+		}
+	}
+	
+	/**
+	 * Returns whether or not the targets are what is left of the path sent to the brick.
+	 * Targets passed since sending are removed from the front, so they match the end of the sent path.
+	 *
+	 * @return boolean
+	 */
+	private boolean isFollowing() {
+		// Skip if not following or more targets than sent.
+		int size = this.targets.size();
+		if (this.pathSize < 0 || size > this.pathSize) return false;
+		
+		// Compare the rounded coordinates with the end of the sent path.
+		int offset = this.pathSize - size;
+		for (int i = 0; i < size; i++) {
+			Point target = this.targets.get(i);
+			if (Math.round(target.x) != this.pathSent[(offset + i) * 2] || Math.round(target.y) != this.pathSent[(offset + i) * 2 + 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Remove the targets the brick reported as passed, keeping the last one.
+	 *
+	 * @param index
+	 */
+	private void passSent(int index) {
+		// Skip if the brick follows another path.
+		if (! this.isFollowing()) return;
+		
+		// Remove targets up to the passed index of the sent path.
+		while (this.targets.size() > 1 && this.pathSize - this.targets.size() <= index) {
+			this.targets.remove(0);
+		}
+	}
+	
+	/**
+	 * Remove the targets before the last one within lookahead distance.
+	 *
+	 * @param vehicle
+	 */
+	private void passTargets(Vehicle vehicle) {
+		while (this.targets.size() > 1) {
+			// Find the distance to the next target.
+			Point target = this.targets.get(0);
+			double dx = target.x - vehicle.center.x;
+			double dy = target.y - vehicle.center.y;
+			
+			// Stop if the target is still ahead.
+			if (Math.sqrt(dx * dx + dy * dy) >= Config.Client.lookahead) return;
+			this.targets.remove(0);
+		}
+	}
+	
 	/**
 	 * Handles the collecting mechanism logic.
 	 *
@@ -392,44 +699,59 @@ public class Client {
 			this.collect(this.collectInnerSpeed, this.collectOuterSpeed);
 		}
 		
-		// Handle collecting when stalled.
-		if (this.stream != null && this.input != null) {
-			try {
-				// Check if any stream content is available.
-				if (this.stream.available() > 0) {
-					// Get text from input stream.
-					String text = this.input.nextLine();
-					
-					// Make action based on stalled params.
-					if (text.equals("stalled inner")) {
-						// Stop the collecting mechanism.
-						System.out.println("Stalled inner");
-						this.stalled = true;
-						this.collecting = false;
-						
-						// Stop inner spinner and clear targets to get to goal.
-						this.collect(0, this.collectOuterSpeed);
-						this.targets.clear();
-					}
-					
-					if (text.equals("stalled outer")) {
-						// @wip
-						System.out.println("Stalled outer");
-						
-						// Mark as not currently collecting.
-						this.collecting = false;
-						
-						// Clear the current target list and reverse.
-						if (! this.nextReverse) {
-							this.targets.clear();
-							this.nextReverse = true;
-						}
-					}
+		// Handle collecting when stalled, and the progress of the brick along the path.
+		String text;
+		while ((text = this.events.poll()) != null) {
+			// Follow the points passed by the brick.
+			if (text.startsWith("reached ")) {
+				try {
+					this.passSent(Integer.parseInt(text.substring(8).trim()));
+				} catch (NumberFormatException e) {
+					Logger.info("Skipped malformed line: " + text);
 				}
+				continue;
+			}
+			
+			// Mark the arrival at the end of the path.
+			if (text.equals("arrived")) {
+				this.arrived = this.isFollowing();
+				continue;
+			}
+			
+			// Send the collecting and path again after the watchdog stopped the motors.
+			if (text.equals("halted")) {
+				Logger.info("Brick halted by watchdog");
+				this.collecting = false;
+				this.pathSize = -1;
+				this.arrived = false;
+				continue;
+			}
+			
+
+			// Make action based on stalled params.
+			if (text.equals("stalled inner")) {
+				// Stop the collecting mechanism.
+				Logger.info("Stalled inner");
+				this.stalled = true;
+				this.collecting = false;
 				
-			} catch (Exception e) {
-				// Print the error stack trace.
-				e.printStackTrace();
+				// Stop inner spinner and clear targets to get to goal.
+				this.collect(0, this.collectOuterSpeed);
+				this.targets.clear();
+			}
+			
+			if (text.equals("stalled outer")) {
+				// @wip
+				Logger.info("Stalled outer");
+				
+				// Mark as not currently collecting.
+				this.collecting = false;
+				
+				// Clear the current target list and reverse.
+				if (! this.nextReverse) {
+					this.targets.clear();
+					this.nextReverse = true;
+				}
 			}
 		}
 	}
@@ -494,6 +816,12 @@ public class Client {
 			forceSkip = true;
 		}
 		
+		// Pass the last target once the brick arrived at it.
+		if (this.arrived && this.targets.size() == 1) {
+			this.arrived = false;
+			forceSkip = true;
+		}
+		
 		// Skip if target point is not inside triangle.
 		if (dist <= insideDistance && ! forceSkip) return;
 		if (this.targets.isEmpty()) return;
@@ -507,7 +835,9 @@ public class Client {
 		}
 		
 		// Keep moving forward to prevent turning.
-		this.move(this.slowSpeed);
+		if (! Config.Client.onBrick) {
+			this.move(this.slowSpeed);
+		}
 		
 		// Check if empty and should reverse next.
 		if (this.targets.isEmpty() && this.shouldReverse) {
@@ -541,6 +871,21 @@ public class Client {
 		}
 	}
 
+	/**
+	 * Returns the vehicle pose extrapolated by the end-to-end latency.
+	 *
+	 * @param vehicle
+	 * @return Vehicle
+	 */
+	private Vehicle predict(Vehicle vehicle) {
+		// Skip if prediction is disabled.
+		if (! Config.Client.predict) return vehicle;
+		
+		// Predict the pose when the next command reaches the motors.
+		long until = System.currentTimeMillis() + Math.round(this.latency.getOneWay());
+		return this.predictor.predict(vehicle, until);
+	}
+	
 	/**
 	 * Returns the distance between the vehicle and target.
 	 *
@@ -549,7 +894,7 @@ public class Client {
 	 * @return double
 	 */
 	private double calculateDistance(Vehicle vehicle, Point target) {
-		return Imgproc.pointPolygonTest(vehicle.triangle, target, true);
+		return Imgproc.pointPolygonTest(vehicle.getTriangle(), target, true);
 	}
 	
 	/**
@@ -630,8 +975,9 @@ public class Client {
 	 * @param speed
 	 */
 	private void move(int speed) {
-		if (this.output == null) return;
-		this.output.println("move " + speed);
+		this.pathSize = -1;
+		this.send("move", speed);
+		this.record(speed, speed);
 	}
 	
 	/**
@@ -641,8 +987,27 @@ public class Client {
 	 * @param speed
 	 */
 	private void turn(int angle, int speed) {
-		if (this.output == null) return;
-		this.output.println("turn " + angle + " " + speed);
+		this.pathSize = -1;
+		this.send("turn", angle, speed);
+		
+		// Record the spin direction of the wheels.
+		if (angle > 0) {
+			this.record(speed, -speed);
+		} else if (angle < 0) {
+			this.record(-speed, speed);
+		}
+	}
+	
+	/**
+	 * Drive the left and right wheels with separate speeds.
+	 *
+	 * @param left
+	 * @param right
+	 */
+	private void drive(int left, int right) {
+		this.pathSize = -1;
+		this.send("drive", left, right);
+		this.record(left, right);
 	}
 	
 	/**
@@ -652,8 +1017,7 @@ public class Client {
 	 * @param outer
 	 */
 	private void collect(int inner, int outer) {
-		if (this.output == null) return;
-		this.output.println("collect " + inner + " " + outer);
+		this.send("collect", inner, outer);
 	}
 	
 	/**
@@ -663,8 +1027,51 @@ public class Client {
 	 * @param outer
 	 */
 	public void beep(int type) {
+		this.send("beep", type);
+	}
+	
+	/**
+	 * Record the wheel speeds for the pose predictor.
+	 *
+	 * @param left
+	 * @param right
+	 */
+	private void record(int left, int right) {
 		if (this.output == null) return;
-		this.output.println("beep " + type);
+		this.predictor.command(System.currentTimeMillis() + Math.round(this.latency.getOneWay()), left, right);
+	}
+	
+	/**
+	 * Send the command with a sequence number and timestamp.
+	 *
+	 * @param name
+	 * @param params
+	 */
+	private synchronized void send(String name, long... params) {
+		if (this.output == null) return;
+		
+		// Build the sequenced line in the reused buffer.
+		long span = Tracer.begin();
+		long now = System.currentTimeMillis();
+		this.sent = now;
+		StringBuilder line = this.line;
+		line.setLength(0);
+		line.append(++this.sequence).append(' ').append(now).append(' ').append(name);
+		for (int i = 0; i < params.length; i++) {
+			line.append(' ').append(params[i]);
+		}
+		
+		// Send the line through the reused characters, traced with its capture.
+		if (this.chars.length < line.length()) {
+			this.chars = new char[line.length() * 2];
+		}
+		line.getChars(0, line.length(), this.chars, 0);
+		this.output.write(this.chars, 0, line.length());
+		this.output.println();
+		Tracer.end(name, this.frame, span);
+		
+		// Log the sent line.
+		if (this.log != null) this.log.command(RunLog.SENT, now, this.frame, line);
 	}
 	
 	/**
@@ -674,6 +1081,10 @@ public class Client {
 	 */
 	private void pause(int millis) {
 		this.pauser = System.currentTimeMillis() + millis;
+		
+		// Restart the profiles after the manoeuvre.
+		this.moveProfile.reset();
+		this.turnProfile.reset();
 	}
 	
 	/**
@@ -684,6 +1095,8 @@ public class Client {
 		this.collect(0, 0);
 		
 		this.pauser = 0;
+		this.moveProfile.reset();
+		this.turnProfile.reset();
 		this.done = false;
 		this.stalled = false;
 		this.collecting = false;
@@ -693,4 +1106,42 @@ public class Client {
 		this.wasTowardsGoal = false;
 	}
 	
+	/**
+	 * Runtime for the incoming server events.
+	 */
+	private class Receiver implements Runnable {
+		
+		/**
+		 * Reads server lines until the connection closes.
+		 */
+		@Override
+		public void run() {
+			try {
+				String line;
+				while ((line = input.readLine()) != null) {
+					// Log the received line.
+					if (log != null) log.command(RunLog.RECEIVED, System.currentTimeMillis(), frame, line);
+					
+					// Update the latency estimate from acknowledges, skipping malformed ones.
+					if (line.startsWith("ack ")) {
+						try {
+							String[] ack = line.split(" ");
+							latency.update(Long.parseLong(ack[2]), Long.parseLong(ack[3]), System.currentTimeMillis());
+						} catch (RuntimeException e) {
+							Logger.info("Skipped malformed line: " + line);
+						}
+						continue;
+					}
+					
+					// Queue the event for the movement loop.
+					events.add(line);
+				}
+			} catch (Exception e) {
+				// Show disconnection message.
+				Logger.info("Server disconnect");
+			}
+		}
+		
+	}
+	
 }
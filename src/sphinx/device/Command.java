@@ -0,0 +1,182 @@
+package sphinx.device;
+
+public class Command {
+
+	/**
+	 * The sequence number of the command.
+	 *
+	 * @var long
+	 */
+	public long sequence;
+
+	/**
+	 * The client millis when the command was sent.
+	 *
+	 * @var long
+	 */
+	public long sent;
+
+	/**
+	 * The name of the command.
+	 *
+	 * @var String
+	 */
+	public String name;
+
+	/**
+	 * The parameters of the command.
+	 *
+	 * @var String[]
+	 */
+	public String[] args;
+
+	/**
+	 * Creates a new command with header and parameters.
+	 *
+	 * @param sequence
+	 * @param sent
+	 * @param name
+	 * @param args
+	 */
+	public Command(long sequence, long sent, String name, String[] args) {
+		this.sequence = sequence;
+		this.sent = sent;
+		this.name = name;
+		this.args = args;
+	}
+
+	/**
+	 * Parses a <sequence> <sent> <name> <args...> line.
+	 * Lines without a numeric header are parsed with an empty header.
+	 *
+	 * @param line
+	 * @return Command
+	 */
+	public static Command parse(String line) {
+		// Skip if missing command and split parameters.
+		if (line == null || line.trim().isEmpty()) return null;
+		String[] parts = line.trim().split(" ");
+
+		// Find the header offset if the line is sequenced.
+		int offset = 0;
+		long sequence = 0, sent = 0;
+		if (parts.length >= 3 && isNumeric(parts[0]) && isNumeric(parts[1])) {
+			sequence = Long.parseLong(parts[0]);
+			sent = Long.parseLong(parts[1]);
+			offset = 2;
+		}
+
+		// Copy the remaining parameters.
+		String[] args = new String[parts.length - offset - 1];
+		System.arraycopy(parts, offset + 1, args, 0, args.length);
+
+		// Return the parsed command.
+		return new Command(sequence, sent, parts[offset], args);
+	}
+
+	/**
+	 * Returns the parameter at the index as integer.
+	 *
+	 * @param index
+	 * @return int
+	 */
+	public int getInt(int index) {
+		return Integer.parseInt(this.args[index]);
+	}
+
+	/**
+	 * Returns whether or not the command carries a sequence header.
+	 *
+	 * @return boolean
+	 */
+	public boolean isSequenced() {
+		return this.sequence > 0;
+	}
+
+	/**
+	 * Returns the kind of motors the command controls.
+	 * Commands without a kind are never superseded.
+	 *
+	 * @return String
+	 */
+	public String kind() {
+		switch (this.name) {
+			case "move":
+			case "turn":
+			case "drive":
+			case "path":
+			case "cancel":
+				return "drive";
+
+			case "pose":
+				return "pose";
+
+			case "collect":
+				return "collect";
+
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Returns whether or not this command makes the passed one obsolete.
+	 *
+	 * @param other
+	 * @return boolean
+	 */
+	public boolean supersedes(Command other) {
+		return this.kind() != null && this.kind().equals(other.kind())
+			&& this.sequence >= other.sequence;
+	}
+
+	/**
+	 * Returns the acknowledge line for the passed receive millis.
+	 *
+	 * @param received
+	 * @return String
+	 */
+	public String ack(long received) {
+		return "ack " + this.sequence + " " + this.sent + " " + received;
+	}
+
+	/**
+	 * Returns the command as protocol line.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		// Prepare the header and name.
+		StringBuilder line = new StringBuilder();
+		line.append(this.sequence).append(' ').append(this.sent).append(' ').append(this.name);
+
+		// Append the parameters.
+		for (String arg : this.args) {
+			line.append(' ').append(arg);
+		}
+
+		// Return the line.
+		return line.toString();
+	}
+
+	/**
+	 * Returns whether or not the passed text is an integer.
+	 *
+	 * @param text
+	 * @return boolean
+	 */
+	private static boolean isNumeric(String text) {
+		// Skip empty text.
+		if (text.isEmpty()) return false;
+
+		// Check every character is a digit.
+		for (int i = 0; i < text.length(); i++) {
+			if (! Character.isDigit(text.charAt(i))) return false;
+		}
+
+		// Return numeric result.
+		return true;
+	}
+
+}
@@ -0,0 +1,28 @@
+package sphinx.device;
+
+public interface Drive {
+
+	/**
+	 * Set the left and right wheel speeds separately.
+	 * Positive speeds move the wheel forward.
+	 *
+	 * @param left
+	 * @param right
+	 */
+	public void drive(int left, int right);
+
+	/**
+	 * Returns the forward motor degrees turned by the left wheel.
+	 *
+	 * @return int
+	 */
+	public int getLeftTacho();
+
+	/**
+	 * Returns the forward motor degrees turned by the right wheel.
+	 *
+	 * @return int
+	 */
+	public int getRightTacho();
+
+}
@@ -0,0 +1,206 @@
+package sphinx.device;
+
+import java.io.PrintWriter;
+
+import sphinx.Config;
+
+public class Follower implements Runnable {
+
+	/**
+	 * The motor loop period in millis.
+	 *
+	 * @var int
+	 */
+	public static final int period = 10;
+
+	/**
+	 * The wheels driven by the follower.
+	 *
+	 * @var Drive
+	 */
+	private Drive drive;
+
+	/**
+	 * The outgoing progress connection.
+	 *
+	 * @var PrintWriter
+	 */
+	private PrintWriter output;
+
+	/**
+	 * The pose integrated from the wheel tacho counts.
+	 *
+	 * @var Odometry
+	 */
+	public Odometry odometry = new Odometry();
+
+	/**
+	 * The path follower computing the wheel speeds.
+	 *
+	 * @var Pursuit
+	 */
+	private Pursuit pursuit = new Pursuit(
+		Config.Client.lookahead,
+		Config.Position.wheelBase * Config.Position.pixelsPerCm,
+		Config.Client.spinAngle
+	);
+
+	/**
+	 * The followed path points.
+	 *
+	 * @var double[]
+	 */
+	private double[] xs = new double[0], ys = new double[0];
+
+	/**
+	 * The index of the next path point.
+	 *
+	 * @var int
+	 */
+	private int next = 0;
+
+	/**
+	 * The driving and spinning speeds.
+	 *
+	 * @var int
+	 */
+	private int speed, spinSpeed;
+
+	/**
+	 * The following state of the path.
+	 *
+	 * @var boolean
+	 */
+	private boolean active = false;
+
+	/**
+	 * The running state of the motor loop.
+	 *
+	 * @var boolean
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Creates the follower for the wheels and progress connection.
+	 *
+	 * @param drive
+	 * @param output
+	 */
+	public Follower(Drive drive, PrintWriter output) {
+		this.drive = drive;
+		this.output = output;
+	}
+
+	/**
+	 * Start following a path <speed, spin speed, time, x, y, rotation, points...>.
+	 *
+	 * @param cmd
+	 */
+	public synchronized void start(Command cmd) {
+		// Save the speeds.
+		this.speed = cmd.getInt(0);
+		this.spinSpeed = cmd.getInt(1);
+
+		// Correct the pose with the starting measurement.
+		this.odometry.correct(cmd.getInt(3), cmd.getInt(4), cmd.getInt(5), Long.parseLong(cmd.args[2]));
+
+		// Save the path points.
+		int count = (cmd.args.length - 6) / 2;
+		this.xs = new double[count];
+		this.ys = new double[count];
+		for (int i = 0; i < count; i++) {
+			this.xs[i] = cmd.getInt(6 + i * 2);
+			this.ys[i] = cmd.getInt(7 + i * 2);
+		}
+
+		// Start following from the first point.
+		this.next = 0;
+		this.active = count > 0;
+	}
+
+	/**
+	 * Correct the pose with a measurement <x, y, rotation, time>.
+	 *
+	 * @param cmd
+	 */
+	public synchronized void correct(Command cmd) {
+		this.odometry.correct(cmd.getInt(0), cmd.getInt(1), cmd.getInt(2), Long.parseLong(cmd.args[3]));
+	}
+
+	/**
+	 * Stop following the path.
+	 */
+	public synchronized void cancel() {
+		if (! this.active) return;
+		this.active = false;
+		this.drive.drive(0, 0);
+	}
+
+	/**
+	 * Stop the motor loop.
+	 */
+	public void stop() {
+		this.running = false;
+	}
+
+	/**
+	 * Runs the motor loop until stopped.
+	 */
+	@Override
+	public void run() {
+		while (this.running) {
+			// Step the odometry and path.
+			this.step(System.currentTimeMillis());
+
+			// Wait for the next period.
+			try {
+				Thread.sleep(period);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Update the pose and drive towards the path.
+	 *
+	 * @param now
+	 */
+	public synchronized void step(long now) {
+		// Integrate the wheel movement.
+		this.odometry.update(this.drive.getLeftTacho(), this.drive.getRightTacho(), now);
+		if (! this.active) return;
+
+		// Pass the points within the lookahead distance.
+		int last = this.xs.length - 1;
+		while (this.next < last && this.distance(this.next) < Config.Client.lookahead) {
+			this.output.println("reached " + this.next++);
+		}
+
+		// Stop when arriving at the last point.
+		if (this.distance(last) < Config.Client.arriveDistance) {
+			this.active = false;
+			this.drive.drive(0, 0);
+			this.output.println("arrived");
+			return;
+		}
+
+		// Drive towards the lookahead point.
+		double[] wheels = this.pursuit.wheels(
+			this.odometry.x, this.odometry.y, this.odometry.getRotation(),
+			this.xs, this.ys, this.next, this.xs.length, this.speed, this.spinSpeed
+		);
+		this.drive.drive((int) Math.round(wheels[0]), (int) Math.round(wheels[1]));
+	}
+
+	/**
+	 * Returns the distance from the pose to the path point.
+	 *
+	 * @param index
+	 * @return double
+	 */
+	private double distance(int index) {
+		return Math.hypot(this.xs[index] - this.odometry.x, this.ys[index] - this.odometry.y);
+	}
+
+}
@@ -0,0 +1,130 @@
+package sphinx.device;
+
+public class Latency {
+
+	/**
+	 * The weight of a new sample in the rolling estimates.
+	 *
+	 * @var double
+	 */
+	private double weight;
+
+	/**
+	 * The smoothed round trip time in millis.
+	 *
+	 * @var double
+	 */
+	private double rtt = 0;
+
+	/**
+	 * The smoothed round trip time deviation in millis.
+	 *
+	 * @var double
+	 */
+	private double deviation = 0;
+
+	/**
+	 * The smoothed server clock offset in millis.
+	 *
+	 * @var double
+	 */
+	private double offset = 0;
+
+	/**
+	 * The amount of received samples.
+	 *
+	 * @var long
+	 */
+	private long samples = 0;
+
+	/**
+	 * Creates the estimator with the sample weight.
+	 *
+	 * @param weight
+	 */
+	public Latency(double weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * Adds an acknowledge sample to the rolling estimates.
+	 *
+	 * @param sent client millis when sent
+	 * @param received server millis when received
+	 * @param acked client millis when acknowledged
+	 */
+	public synchronized void update(long sent, long received, long acked) {
+		// Find round trip and the offset assuming a symmetric path.
+		double rtt = acked - sent;
+		double offset = received - (sent + rtt / 2);
+
+		// Use the first sample directly.
+		if (this.samples++ == 0) {
+			this.rtt = rtt;
+			this.deviation = rtt / 2;
+			this.offset = offset;
+			return;
+		}
+
+		// Update the rolling estimates.
+		this.deviation += this.weight * (Math.abs(rtt - this.rtt) - this.deviation);
+		this.rtt += this.weight * (rtt - this.rtt);
+		this.offset += this.weight * (offset - this.offset);
+	}
+
+	/**
+	 * Returns the smoothed round trip time in millis.
+	 *
+	 * @return double
+	 */
+	public synchronized double getRtt() {
+		return this.rtt;
+	}
+
+	/**
+	 * Returns the smoothed round trip deviation in millis.
+	 *
+	 * @return double
+	 */
+	public synchronized double getDeviation() {
+		return this.deviation;
+	}
+
+	/**
+	 * Returns the estimated one way delay in millis.
+	 *
+	 * @return double
+	 */
+	public synchronized double getOneWay() {
+		return this.rtt / 2;
+	}
+
+	/**
+	 * Returns the server clock offset in millis.
+	 *
+	 * @return double
+	 */
+	public synchronized double getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * Returns the amount of received samples.
+	 *
+	 * @return long
+	 */
+	public synchronized long getSamples() {
+		return this.samples;
+	}
+
+	/**
+	 * Converts client millis into server millis.
+	 *
+	 * @param millis
+	 * @return long
+	 */
+	public synchronized long toServer(long millis) {
+		return millis + Math.round(this.offset);
+	}
+
+}
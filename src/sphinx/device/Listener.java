@@ -0,0 +1,226 @@
+package sphinx.device;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class Listener {
+
+	/**
+	 * Whether or not to run a virtual thread per connection when the JDK has them.
+	 *
+	 * @var boolean
+	 */
+	public static final boolean preferVirtual = true;
+
+	/**
+	 * The platform threads used when virtual threads are missing.
+	 *
+	 * @var int
+	 */
+	public static final int poolSize = 20;
+
+	/**
+	 * The millis the sessions get to stop their motors on shutdown.
+	 *
+	 * @var int
+	 */
+	public static final int shutdownTimeout = 2000;
+
+	/**
+	 * Creates the session of an accepted connection.
+	 */
+	public interface Factory {
+
+		/**
+		 * Returns the session for the socket.
+		 *
+		 * @param socket
+		 * @return Session
+		 */
+		public Session create(Socket socket);
+
+	}
+
+	/**
+	 * The listening socket.
+	 *
+	 * @var ServerSocket
+	 */
+	private ServerSocket listener;
+
+	/**
+	 * The executor owning the session threads.
+	 *
+	 * @var ExecutorService
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * The running sessions.
+	 *
+	 * @var Set<Session>
+	 */
+	private Set<Session> sessions = Collections.synchronizedSet(new HashSet<Session>());
+
+	/**
+	 * The running state, cleared once on shutdown.
+	 *
+	 * @var boolean
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Creates the listener of the socket, with virtual threads if available.
+	 *
+	 * @param listener
+	 */
+	public Listener(ServerSocket listener) {
+		this.listener = listener;
+		this.executor = createExecutor();
+	}
+
+	/**
+	 * Accept connections and run their sessions until shut down.
+	 * Closing the process shuts the listener down first, so every session stops its motors.
+	 *
+	 * @param factory
+	 * @throws IOException
+	 */
+	public void serve(Factory factory) throws IOException {
+		// Shut down the sessions with the process.
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				shutdown();
+			}
+		}, "Listener shutdown"));
+
+		// Start the motor watchdog.
+		Thread watchdog = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch();
+			}
+		}, "Watchdog");
+		watchdog.setDaemon(true);
+		watchdog.start();
+
+		try {
+			// Run a session per accepted connection.
+			while (this.running) {
+				final Session session = factory.create(this.listener.accept());
+				this.executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						sessions.add(session);
+						try {
+							session.run();
+						} finally {
+							sessions.remove(session);
+						}
+					}
+				});
+			}
+		} catch (IOException e) {
+			// Stop quietly when closed by the shutdown.
+			if (this.running) throw e;
+		} finally {
+			this.shutdown();
+		}
+	}
+
+	/**
+	 * Stop accepting, close every session and wait for them to stop their motors.
+	 */
+	public void shutdown() {
+		// Skip if already shut down.
+		synchronized (this) {
+			if (! this.running) return;
+			this.running = false;
+		}
+
+		// Stop accepting connections.
+		try {
+			this.listener.close();
+		} catch (IOException e) {
+			System.out.println("Listener crashed");
+		}
+
+		// Close the sessions, ending their reads.
+		for (Session session : this.getSessions()) {
+			session.close();
+		}
+
+		// Wait for the sessions to finish.
+		this.executor.shutdown();
+		try {
+			if (! this.executor.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+				this.executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Check the sessions for missing commands until shut down.
+	 */
+	private void watch() {
+		while (this.running) {
+			// Stop the motors of sessions without recent commands.
+			long now = System.currentTimeMillis();
+			for (Session session : this.getSessions()) {
+				session.check(now);
+			}
+
+			// Check a few times per watchdog period.
+			try {
+				Thread.sleep(Math.max(1, Session.watchdog / 4));
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of the running sessions.
+	 *
+	 * @return ArrayList<Session>
+	 */
+	private ArrayList<Session> getSessions() {
+		synchronized (this.sessions) {
+			return new ArrayList<Session>(this.sessions);
+		}
+	}
+
+	/**
+	 * Returns the virtual thread per task executor when the JDK has one,
+	 * otherwise the fixed pool. Looked up by name to build on older JDKs.
+	 *
+	 * @return ExecutorService
+	 */
+	private static ExecutorService createExecutor() {
+		if (preferVirtual) {
+			try {
+				ExecutorService executor = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+				System.out.println("Sessions run on virtual threads");
+				return executor;
+			} catch (Exception e) {
+				// Fall back to the pool without virtual threads.
+			}
+		}
+		return Executors.newFixedThreadPool(poolSize);
+	}
+
+}
@@ -0,0 +1,213 @@
+package sphinx.device;
+
+import sphinx.Config;
+
+public class Odometry {
+
+	/**
+	 * The amount of poses kept for delayed corrections.
+	 *
+	 * @var int
+	 */
+	private static final int size = 128;
+
+	/**
+	 * The current position in pixels.
+	 *
+	 * @var double
+	 */
+	public double x = 0, y = 0;
+
+	/**
+	 * The current heading in radians.
+	 *
+	 * @var double
+	 */
+	public double theta = 0;
+
+	/**
+	 * The pixels travelled per motor degree.
+	 *
+	 * @var double
+	 */
+	private double pixelsPerDegree = Math.PI * Config.Position.wheelDiameter / 360 * Config.Position.pixelsPerCm;
+
+	/**
+	 * The distance between the wheels in pixels.
+	 *
+	 * @var double
+	 */
+	private double wheelBase = Config.Position.wheelBase * Config.Position.pixelsPerCm;
+
+	/**
+	 * The last read wheel tacho counts.
+	 *
+	 * @var int
+	 */
+	private int left, right;
+
+	/**
+	 * Whether or not the tacho counts have been read.
+	 *
+	 * @var boolean
+	 */
+	private boolean started = false;
+
+	/**
+	 * The millis of the history poses.
+	 *
+	 * @var long[]
+	 */
+	private long[] times = new long[size];
+	
+	/**
+	 * The history poses used for delayed corrections.
+	 *
+	 * @var double[]
+	 */
+	private double[] xs = new double[size];
+	private double[] ys = new double[size];
+	private double[] thetas = new double[size];
+
+	/**
+	 * The amount of saved history poses.
+	 *
+	 * @var int
+	 */
+	private int count = 0;
+
+	/**
+	 * Integrate the wheel movement since the last tacho counts.
+	 *
+	 * @param left forward motor degrees
+	 * @param right forward motor degrees
+	 * @param time
+	 */
+	public void update(int left, int right, long time) {
+		// Start from the first tacho counts.
+		if (! this.started) {
+			this.left = left;
+			this.right = right;
+			this.started = true;
+		}
+
+		// Find the travelled wheel distances.
+		double dl = (left - this.left) * this.pixelsPerDegree;
+		double dr = (right - this.right) * this.pixelsPerDegree;
+		this.left = left;
+		this.right = right;
+
+		// Move along the mean heading of the step.
+		double distance = (dl + dr) / 2;
+		double turn = (dl - dr) / this.wheelBase;
+		this.x += distance * Math.cos(this.theta + turn / 2);
+		this.y += distance * Math.sin(this.theta + turn / 2);
+		this.theta += turn;
+
+		// Save the pose in the history.
+		int index = this.count++ % size;
+		this.times[index] = time;
+		this.xs[index] = this.x;
+		this.ys[index] = this.y;
+		this.thetas[index] = this.theta;
+	}
+
+	/**
+	 * Set the pose without history.
+	 *
+	 * @param x
+	 * @param y
+	 * @param rotation in degrees
+	 */
+	public void reset(double x, double y, double rotation) {
+		this.x = x;
+		this.y = y;
+		this.theta = rotation * (Math.PI / 180);
+		this.count = 0;
+	}
+
+	/**
+	 * Correct the pose with a measurement taken at the passed millis.
+	 * The motion since the measurement is replayed onto it.
+	 *
+	 * @param x
+	 * @param y
+	 * @param rotation in degrees
+	 * @param time
+	 */
+	public void correct(double x, double y, double rotation, long time) {
+		// Reset if no history exists.
+		if (this.count == 0) {
+			this.reset(x, y, rotation);
+			return;
+		}
+
+		// Find the newest history pose at or before the measurement.
+		int oldest = Math.max(0, this.count - size);
+		int found = oldest;
+		for (int i = this.count - 1; i >= oldest; i--) {
+			if (this.times[i % size] <= time) {
+				found = i;
+				break;
+			}
+		}
+
+		// Find the motion since the history pose.
+		int index = found % size;
+		double dx = this.x - this.xs[index];
+		double dy = this.y - this.ys[index];
+		double dtheta = this.theta - this.thetas[index];
+
+		// Rotate the motion into the measured heading.
+		double measured = rotation * (Math.PI / 180);
+		double rotate = measured - this.thetas[index];
+		double cos = Math.cos(rotate);
+		double sin = Math.sin(rotate);
+
+		// Apply the motion onto the measured pose.
+		this.x = x + dx * cos - dy * sin;
+		this.y = y + dx * sin + dy * cos;
+		this.theta = measured + dtheta;
+
+		// Move the history onto the corrected pose.
+		this.shift(found, rotate, x - this.xs[index], y - this.ys[index]);
+	}
+
+	/**
+	 * Returns the heading in degrees within a full circle.
+	 *
+	 * @return double
+	 */
+	public double getRotation() {
+		double rotation = (this.theta * (180 / Math.PI)) % 360;
+		return rotation < 0 ? rotation + 360 : rotation;
+	}
+
+	/**
+	 * Move the history from the passed entry onto the corrected pose.
+	 *
+	 * @param from
+	 * @param rotate
+	 * @param dx
+	 * @param dy
+	 */
+	private void shift(int from, double rotate, double dx, double dy) {
+		// Find the pivot of the rotation.
+		int pivot = from % size;
+		double px = this.xs[pivot];
+		double py = this.ys[pivot];
+		double cos = Math.cos(rotate);
+		double sin = Math.sin(rotate);
+
+		// Rotate around the pivot and move every later pose.
+		for (int i = from; i < this.count; i++) {
+			int index = i % size;
+			double rx = this.xs[index] - px;
+			double ry = this.ys[index] - py;
+			this.xs[index] = px + dx + rx * cos - ry * sin;
+			this.ys[index] = py + dy + rx * sin + ry * cos;
+			this.thetas[index] += rotate;
+		}
+	}
+
+}
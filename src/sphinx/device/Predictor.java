@@ -0,0 +1,220 @@
+package sphinx.device;
+
+import sphinx.Config;
+import sphinx.elements.Vehicle;
+
+public class Predictor {
+
+	/**
+	 * The amount of wheel commands kept in the history.
+	 *
+	 * @var int
+	 */
+	private static final int size = 64;
+
+	/**
+	 * The integration step in millis.
+	 *
+	 * @var int
+	 */
+	private static final int step = 5;
+
+	/**
+	 * The longest history used to settle the wheel speeds in millis.
+	 *
+	 * @var int
+	 */
+	private static final int settle = 1000;
+
+	/**
+	 * The millis when each wheel command reached the motors.
+	 *
+	 * @var long[]
+	 */
+	private long[] times = new long[size];
+
+	/**
+	 * The commanded left wheel speeds in motor degrees per second.
+	 *
+	 * @var double[]
+	 */
+	private double[] lefts = new double[size];
+
+	/**
+	 * The commanded right wheel speeds in motor degrees per second.
+	 *
+	 * @var double[]
+	 */
+	private double[] rights = new double[size];
+
+	/**
+	 * The amount of recorded wheel commands.
+	 *
+	 * @var int
+	 */
+	private int count = 0;
+
+	/**
+	 * The pixels travelled per motor degree.
+	 *
+	 * @var double
+	 */
+	private double pixelsPerDegree;
+
+	/**
+	 * The distance between the wheels in pixels.
+	 *
+	 * @var double
+	 */
+	private double wheelBase;
+
+	/**
+	 * The motor acceleration in degrees per second squared.
+	 *
+	 * @var double
+	 */
+	private double acceleration;
+
+	/**
+	 * The reused predicted vehicle pose.
+	 *
+	 * @var Vehicle
+	 */
+	private Vehicle predicted = new Vehicle();
+
+	/**
+	 * Creates the predictor from the configured vehicle.
+	 */
+	public Predictor() {
+		this(
+			Config.Position.wheelDiameter,
+			Config.Position.wheelBase,
+			Config.Position.pixelsPerCm,
+			Config.Position.acceleration
+		);
+	}
+
+	/**
+	 * Creates the predictor with vehicle sizes.
+	 *
+	 * @param wheelDiameter in cm
+	 * @param wheelBase in cm
+	 * @param pixelsPerCm
+	 * @param acceleration in motor degrees per second squared
+	 */
+	public Predictor(double wheelDiameter, double wheelBase, double pixelsPerCm, double acceleration) {
+		this.pixelsPerDegree = Math.PI * wheelDiameter / 360 * pixelsPerCm;
+		this.wheelBase = wheelBase * pixelsPerCm;
+		this.acceleration = acceleration;
+	}
+
+	/**
+	 * Record a wheel command reaching the motors at the passed millis.
+	 * Positive speeds move the wheel forward.
+	 *
+	 * @param applied
+	 * @param left
+	 * @param right
+	 */
+	public void command(long applied, double left, double right) {
+		int index = this.count++ % size;
+		this.times[index] = applied;
+		this.lefts[index] = left;
+		this.rights[index] = right;
+	}
+
+	/**
+	 * Returns the vehicle pose extrapolated to the passed millis.
+	 *
+	 * @param vehicle
+	 * @param until
+	 * @return Vehicle
+	 */
+	public Vehicle predict(Vehicle vehicle, long until) {
+		// Skip if the pose or its capture time is missing.
+		if (vehicle.points == null || vehicle.timestamp == 0) return vehicle;
+
+		// Integrate the commanded motion since the capture.
+		double[] pose = this.integrate(
+			vehicle.center.x, vehicle.center.y, vehicle.rotation,
+			vehicle.timestamp, until
+		);
+
+		// Move the detected pose to the integrated one.
+		vehicle.project(this.predicted,
+			pose[0] - vehicle.center.x,
+			pose[1] - vehicle.center.y,
+			pose[2] - vehicle.rotation
+		);
+
+		// Return the predicted pose.
+		return this.predicted;
+	}
+
+	/**
+	 * Returns the x, y and rotation reached by the commanded motion.
+	 *
+	 * @param x
+	 * @param y
+	 * @param rotation in degrees
+	 * @param from millis of the passed pose
+	 * @param to millis of the requested pose
+	 * @return double[]
+	 */
+	public double[] integrate(double x, double y, double rotation, long from, long to) {
+		// Find the oldest retained command.
+		int oldest = Math.max(0, this.count - size);
+
+		// Start early enough for the wheels to settle.
+		long time = from - settle;
+		if (this.count > 0) {
+			time = Math.max(time, this.times[oldest % size]);
+		}
+
+		// Start at the speeds commanded before the starting time.
+		int next = oldest;
+		double left = 0, right = 0;
+		while (next < this.count && this.times[next % size] < time) {
+			left = this.lefts[next % size];
+			right = this.rights[next % size];
+			next++;
+		}
+
+		// Prepare the target speeds and heading in radians.
+		double targetLeft = left, targetRight = right;
+		double theta = rotation * (Math.PI / 180);
+		double change = this.acceleration * step / 1000;
+
+		// Step through time until the requested millis.
+		while (time < to) {
+			// Apply the commands reaching the motors.
+			while (next < this.count && this.times[next % size] <= time) {
+				targetLeft = this.lefts[next % size];
+				targetRight = this.rights[next % size];
+				next++;
+			}
+
+			// Accelerate the wheels towards the targets.
+			left += Math.max(-change, Math.min(change, targetLeft - left));
+			right += Math.max(-change, Math.min(change, targetRight - right));
+
+			// Find the duration of this step.
+			long duration = Math.min(step, to - time);
+			time += duration;
+
+			// Skip integrating before the passed pose.
+			if (time <= from) continue;
+			double seconds = Math.min(duration, time - from) / 1000.0;
+
+			// Move along the heading and turn by the wheel difference.
+			double speed = (left + right) / 2 * this.pixelsPerDegree;
+			x += speed * Math.cos(theta) * seconds;
+			y += speed * Math.sin(theta) * seconds;
+			theta += (left - right) * this.pixelsPerDegree / this.wheelBase * seconds;
+		}
+
+		// Return the reached pose.
+		return new double[] { x, y, theta * (180 / Math.PI) };
+	}
+
+}
@@ -0,0 +1,113 @@
+package sphinx.device;
+
+import sphinx.Config;
+
+public class Profile {
+
+	/**
+	 * The lowest speed used before reaching the end.
+	 *
+	 * @var double
+	 */
+	private double minSpeed;
+
+	/**
+	 * The highest cruising speed.
+	 *
+	 * @var double
+	 */
+	private double maxSpeed;
+
+	/**
+	 * The speed increase per second.
+	 *
+	 * @var double
+	 */
+	private double acceleration;
+
+	/**
+	 * The speed decrease per second.
+	 *
+	 * @var double
+	 */
+	private double deceleration;
+
+	/**
+	 * The last planned speed.
+	 *
+	 * @var double
+	 */
+	private double speed = 0;
+
+	/**
+	 * The millis of the last planned speed.
+	 *
+	 * @var long
+	 */
+	private long time = -1;
+
+	/**
+	 * Creates the profile with speeds in motor degrees per second.
+	 *
+	 * @param minSpeed
+	 * @param maxSpeed
+	 * @param acceleration
+	 * @param deceleration
+	 */
+	public Profile(double minSpeed, double maxSpeed, double acceleration, double deceleration) {
+		this.minSpeed = minSpeed;
+		this.maxSpeed = maxSpeed;
+		this.acceleration = acceleration;
+		this.deceleration = deceleration;
+	}
+
+	/**
+	 * Returns the speed for the remaining motor degrees.
+	 *
+	 * @param remaining
+	 * @param now
+	 * @return double
+	 */
+	public double next(double remaining, long now) {
+		// Find the seconds since the last planned speed.
+		double dt = this.time < 0 ? 0 : Math.max(0, now - this.time) / 1000.0;
+		this.time = now;
+
+		// Limit the speed by cruise, acceleration and the stopping distance.
+		double speed = Math.min(this.maxSpeed, this.speed + this.acceleration * dt);
+		speed = Math.min(speed, Math.sqrt(2 * this.deceleration * Math.max(0, remaining)));
+
+		// Keep moving at least at the minimum speed.
+		this.speed = Math.max(this.minSpeed, speed);
+		return this.speed;
+	}
+
+	/**
+	 * Restart the profile from standstill.
+	 */
+	public void reset() {
+		this.speed = 0;
+		this.time = -1;
+	}
+
+	/**
+	 * Returns the motor degrees for driving the pixel distance.
+	 *
+	 * @param pixels
+	 * @return double
+	 */
+	public static double fromPixels(double pixels) {
+		return pixels / Config.Position.pixelsPerCm / (Math.PI * Config.Position.wheelDiameter) * 360;
+	}
+
+	/**
+	 * Returns the motor degrees for spinning the vehicle degrees in place.
+	 *
+	 * @param degrees
+	 * @return double
+	 */
+	public static double fromRotation(double degrees) {
+		return degrees * Config.Position.wheelBase / Config.Position.wheelDiameter;
+	}
+
+}
@@ -0,0 +1,160 @@
+package sphinx.device;
+
+public class Pursuit {
+
+	/**
+	 * The distance to the point followed on the path.
+	 *
+	 * @var double
+	 */
+	private double lookahead;
+
+	/**
+	 * The distance between the wheels.
+	 *
+	 * @var double
+	 */
+	private double wheelBase;
+
+	/**
+	 * The heading error in degrees where the vehicle spins in place.
+	 *
+	 * @var double
+	 */
+	private double spinAngle;
+
+	/**
+	 * The curvature of the last computed arc.
+	 *
+	 * @var double
+	 */
+	public double curvature = 0;
+
+	/**
+	 * The heading error of the last lookahead point in degrees.
+	 *
+	 * @var double
+	 */
+	public double angle = 0;
+
+	/**
+	 * The last lookahead point.
+	 *
+	 * @var double
+	 */
+	public double targetX, targetY;
+
+	/**
+	 * Creates the follower with sizes in the path units.
+	 *
+	 * @param lookahead
+	 * @param wheelBase
+	 * @param spinAngle
+	 */
+	public Pursuit(double lookahead, double wheelBase, double spinAngle) {
+		this.lookahead = lookahead;
+		this.wheelBase = wheelBase;
+		this.spinAngle = spinAngle;
+	}
+
+	/**
+	 * Returns the left and right wheel speeds following the path.
+	 * Positive speeds move the wheel forward.
+	 *
+	 * @param x
+	 * @param y
+	 * @param rotation in degrees
+	 * @param xs
+	 * @param ys
+	 * @param start index of the first path point used
+	 * @param count amount of path points
+	 * @param speed
+	 * @param spinSpeed
+	 * @return double[]
+	 */
+	public double[] wheels(double x, double y, double rotation, double[] xs, double[] ys, int start, int count, double speed, double spinSpeed) {
+		// Find the point to steer towards.
+		this.findTarget(x, y, xs, ys, start, count);
+
+		// Find the target relative to the heading.
+		double rad = rotation * (Math.PI / 180);
+		double dx = this.targetX - x;
+		double dy = this.targetY - y;
+		double forward = Math.cos(rad) * dx + Math.sin(rad) * dy;
+		double lateral = -Math.sin(rad) * dx + Math.cos(rad) * dy;
+
+		// Find the heading error and arc curvature.
+		double distance = dx * dx + dy * dy;
+		this.angle = Math.atan2(lateral, forward) * (180 / Math.PI);
+		this.curvature = distance > 0 ? 2 * lateral / distance : 0;
+
+		// Spin in place when the target is too far to the side.
+		if (Math.abs(this.angle) > this.spinAngle) {
+			return this.angle > 0
+				? new double[] { spinSpeed, -spinSpeed }
+				: new double[] { -spinSpeed, spinSpeed };
+		}
+
+		// Find the wheel speeds driving the arc.
+		double left = speed * (1 + this.curvature * this.wheelBase / 2);
+		double right = speed * (1 - this.curvature * this.wheelBase / 2);
+
+		// Scale down to keep the fastest wheel at the speed.
+		double fastest = Math.max(Math.abs(left), Math.abs(right));
+		if (fastest > speed) {
+			left = left * speed / fastest;
+			right = right * speed / fastest;
+		}
+
+		// Return the wheel speeds.
+		return new double[] { left, right };
+	}
+
+	/**
+	 * Find the first path point at lookahead distance from the position.
+	 * Uses the last path point if the whole path is closer.
+	 *
+	 * @param x
+	 * @param y
+	 * @param xs
+	 * @param ys
+	 * @param start
+	 * @param count
+	 */
+	private void findTarget(double x, double y, double[] xs, double[] ys, int start, int count) {
+		// Start the path at the position.
+		double startX = x, startY = y;
+
+		// Loop through the path segments.
+		for (int i = start; i < count; i++) {
+			// Find the segment relative to the position.
+			double ax = startX - x, ay = startY - y;
+			double bx = xs[i] - x, by = ys[i] - y;
+
+			// Check if the segment leaves the lookahead circle.
+			if (bx * bx + by * by >= this.lookahead * this.lookahead) {
+				// Solve the circle intersection for the segment.
+				double ex = bx - ax, ey = by - ay;
+				double a = ex * ex + ey * ey;
+				double b = 2 * (ax * ex + ay * ey);
+				double c = ax * ax + ay * ay - this.lookahead * this.lookahead;
+				double root = Math.sqrt(Math.max(0, b * b - 4 * a * c));
+				double t = a > 0 ? Math.min(1, Math.max(0, (-b + root) / (2 * a))) : 1;
+
+				// Save the intersection point.
+				this.targetX = startX + (xs[i] - startX) * t;
+				this.targetY = startY + (ys[i] - startY) * t;
+				return;
+			}
+
+			// Continue from the segment end.
+			startX = xs[i];
+			startY = ys[i];
+		}
+
+		// Use the last path point.
+		this.targetX = startX;
+		this.targetY = startY;
+	}
+
+}
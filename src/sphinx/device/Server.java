@@ -1,17 +1,20 @@
 package sphinx.device;
 
-import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.Scanner;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import lejos.hardware.Sound;
 import lejos.hardware.motor.Motor;
 import lejos.hardware.motor.NXTRegulatedMotor;
 
 public class Server {
+	
+	/**
+	 * The port the server listens on.
+	 *
+	 * @var int
+	 */
+	public static final int port = 59898;
 
 	/**
 	 * Starts the server sockets and listens for requests.
@@ -21,44 +24,25 @@ public class Server {
 	 */
 	public static void main(String[] args) throws Exception {
 		// Attempt to start new server socket.
-		try (ServerSocket listener = new ServerSocket(59898)) {
+		try (ServerSocket listener = new ServerSocket(port)) {
 			// Output running state and play sound.
 			System.out.println("Server is running");
 			Sound.beep();
 			
-			// Create new thread pool and handle incoming requests.
-			ExecutorService pool = Executors.newFixedThreadPool(20);
-			while (true) {
-				pool.execute(new ClientRuntime(listener.accept()));
-			}
+			// Handle incoming requests until shut down.
+			new Listener(listener).serve(new Listener.Factory() {
+				@Override
+				public Session create(Socket socket) {
+					return new ClientRuntime(socket);
+				}
+			});
 		}
 	}
 	
 	/**
 	 * Runtime for the client socket connection.
 	 */
-	private static class ClientRuntime implements Runnable {
-		
-		/**
-		 * The incoming socket connection.
-		 *
-		 * @var Socket
-		 */
-		private Socket socket;
-		
-		/**
-		 * The incoming data connection.
-		 *
-		 * @var Scanner
-		 */
-		private Scanner input;
-		
-		/**
-		 * The outgoing data connection.
-		 *
-		 * @var Scanner
-		 */
-		private PrintWriter output;
+	private static class ClientRuntime extends Session {
 		
 		/**
 		 * The vehicle motor connections.
@@ -77,14 +61,14 @@ public class Server {
 		 * @param socket
 		 */
 		public ClientRuntime(Socket socket) {
-			this.socket = socket;
+			super(socket);
 		}
 		
 		/**
-		 * Handle incoming socket requests.
+		 * Prepare the motors when the client connects.
 		 */
 		@Override
-		public void run() {
+		protected void connected() {
 			// Output connect state and play sound.
 			System.out.println("Client connected");
 			Sound.beep();
@@ -92,75 +76,33 @@ public class Server {
 			//
 			left.setAcceleration(3000);
 			right.setAcceleration(3000);
-			
-			// Attempt to handle socket requests.
-			try {
-				// Prepare input and output streams.
-				this.input = new Scanner(this.socket.getInputStream());
-				this.output = new PrintWriter(this.socket.getOutputStream(), true);
-				
-				// Start socket infinity loop.
-				while (true) {
-					// Read in the incoming data line.
-					String str = this.input.nextLine();
-					
-					//  Check and output if collecting is stalled.
-					if (this.front.isStalled()) {
-						this.output.println("stalled outer");
-					}
-					
-					if (this.pickUp.isStalled()) {
-						this.output.println("stalled inner");
-					}
-					
-					// Skip if missing command and split parameters.
-					if (str == "") return;
-					String[] cmd = str.split(" ");
-					
-					// Switch the found primary command.
-					switch (cmd[0]) {
-					
-						// Handle move <speed> command.
-						case "move":
-							this.move(Integer.parseInt(cmd[1]));
-							break;
-						
-						// Handle turn <degree, speed> command.
-						case "turn":
-							this.turn(Integer.parseInt(cmd[1]), Integer.parseInt(cmd[2]));
-							break;
-						
-						// Handle collect <pickup spped, front speed> command.
-						case "collect":
-							this.collect(Integer.parseInt(cmd[1]), Integer.parseInt(cmd[2]));
-							break;
-						
-						// Handle beeping command.
-						case "beep":
-							Sound.systemSound(false, Integer.parseInt(cmd[1]));
-							break;
-							
-					}
-				}
-			} catch (Exception e) {
-				// Show disconnection message.
-				System.out.println("Client disconnect");
-			} finally {
-				// Stop motor motion.
-				this.move(0);
-				this.collect(0, 0);
-				
-				// Disconnct streams if connected.
-				if (this.input != null) this.input.close();
-				if (this.output != null) this.output.close();
-				
-				// Attempt to close the socket.
-				try {
-					this.socket.close();
-				} catch (Exception e) {
-					System.out.println("Socket crashed");
-				}
-			}
+		}
+		
+		/**
+		 * Play the passed system sound.
+		 *
+		 * @param type
+		 */
+		public void beep(int type) {
+			Sound.systemSound(false, type);
+		}
+		
+		/**
+		 * Returns whether or not the inner pickup motor is stalled.
+		 *
+		 * @return boolean
+		 */
+		public boolean isInnerStalled() {
+			return this.pickUp.isStalled();
+		}
+		
+		/**
+		 * Returns whether or not the outer front motor is stalled.
+		 *
+		 * @return boolean
+		 */
+		public boolean isOuterStalled() {
+			return this.front.isStalled();
 		}
 		
 		/**
@@ -211,6 +153,55 @@ public class Server {
 			}
 		}
 
+		/**
+		 * Set the left and right wheel speeds separately.
+		 *
+		 * @param leftSpeed
+		 * @param rightSpeed
+		 */
+		public void drive(int leftSpeed, int rightSpeed) {
+			this.wheel(left, leftSpeed);
+			this.wheel(right, rightSpeed);
+		}
+		
+		/**
+		 * Returns the forward motor degrees turned by the left wheel.
+		 *
+		 * @return int
+		 */
+		public int getLeftTacho() {
+			return -left.getTachoCount();
+		}
+		
+		/**
+		 * Returns the forward motor degrees turned by the right wheel.
+		 *
+		 * @return int
+		 */
+		public int getRightTacho() {
+			return -right.getTachoCount();
+		}
+		
+		/**
+		 * Set the wheel motor speed and direction.
+		 *
+		 * @param motor
+		 * @param speed
+		 */
+		private void wheel(NXTRegulatedMotor motor, int speed) {
+			// Set movement speed.
+			motor.setSpeed(Math.abs(speed));
+			
+			// Handle direction based on speed.
+			if (speed > 0) {
+				motor.backward();
+			} else if (speed < 0) {
+				motor.forward();
+			} else {
+				motor.stop();
+			}
+		}
+		
 		/**
 		 * Set the collection motors movement speed.
 		 *
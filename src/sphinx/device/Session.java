@@ -0,0 +1,352 @@
+package sphinx.device;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+abstract public class Session implements Runnable, Drive {
+	
+	/**
+	 * Whether or not queued commands are dropped when superseded.
+	 *
+	 * @var boolean
+	 */
+	public static final boolean dropSuperseded = true;
+	
+	/**
+	 * The millis without commands before the motors are stopped.
+	 *
+	 * @var int
+	 */
+	public static final int watchdog = 500;
+	
+	/**
+	 * The millis without any data before the connection is closed.
+	 *
+	 * @var int
+	 */
+	public static final int readTimeout = 30000;
+	
+	/**
+	 * The incoming socket connection.
+	 *
+	 * @var Socket
+	 */
+	protected Socket socket;
+	
+	/**
+	 * The incoming data connection.
+	 *
+	 * @var BufferedReader
+	 */
+	protected BufferedReader input;
+	
+	/**
+	 * The outgoing data connection.
+	 *
+	 * @var PrintWriter
+	 */
+	protected PrintWriter output;
+	
+	/**
+	 * The commands read but not yet executed.
+	 *
+	 * @var LinkedList<Command>
+	 */
+	private LinkedList<Command> pending = new LinkedList<Command>();
+	
+	/**
+	 * The amount of superseded commands dropped.
+	 *
+	 * @var long
+	 */
+	protected long dropped = 0;
+	
+	/**
+	 * The path follower.
+	 *
+	 * @var Follower
+	 */
+	protected Follower follower;
+	
+	/**
+	 * The millis of the last received command.
+	 *
+	 * @var long
+	 */
+	private volatile long received = 0;
+	
+	/**
+	 * The stopped state of the motors by the watchdog, set until the first command.
+	 *
+	 * @var boolean
+	 */
+	private volatile boolean halted = true;
+	
+	/**
+	 * Saves the socket on the instance.
+	 *
+	 * @param socket
+	 */
+	public Session(Socket socket) {
+		this.socket = socket;
+	}
+	
+	/**
+	 * Handle incoming socket requests.
+	 */
+	@Override
+	public void run() {
+		// Prepare the connected vehicle.
+		this.connected();
+		
+		// Attempt to handle socket requests.
+		try {
+			// Close the connection when stuck without data.
+			this.socket.setSoTimeout(readTimeout);
+			
+			// Prepare input and output streams.
+			this.input = new BufferedReader(new InputStreamReader(this.socket.getInputStream()));
+			this.output = new PrintWriter(this.socket.getOutputStream(), true);
+			
+			// Start the path follower motor loop.
+			this.follower = new Follower(this, this.output);
+			new Thread(this.follower, "Follower").start();
+			
+			// Start socket infinity loop.
+			while (true) {
+				// Read in the incoming data line.
+				String str = this.input.readLine();
+				if (str == null) throw new Exception("Stream closed");
+				this.receive(str);
+				
+				// Read the backed up lines without blocking.
+				while (this.input.ready()) {
+					str = this.input.readLine();
+					if (str == null) break;
+					this.receive(str);
+				}
+				
+				//  Check and output if collecting is stalled.
+				if (this.isOuterStalled()) {
+					this.output.println("stalled outer");
+				}
+				
+				if (this.isInnerStalled()) {
+					this.output.println("stalled inner");
+				}
+				
+				// Execute the remaining commands in order.
+				while (! this.pending.isEmpty()) {
+					this.execute(this.pending.removeFirst());
+				}
+			}
+		} catch (Exception e) {
+			// Show disconnection message.
+			System.out.println("Client disconnect, dropped " + this.dropped);
+		} finally {
+			// Stop the path follower.
+			if (this.follower != null) this.follower.stop();
+			
+			// Stop motor motion.
+			this.move(0);
+			this.collect(0, 0);
+			
+			// Disconnct streams if connected.
+			if (this.output != null) this.output.close();
+			
+			// Attempt to close the input and socket.
+			try {
+				if (this.input != null) this.input.close();
+				this.socket.close();
+			} catch (Exception e) {
+				System.out.println("Socket crashed");
+			}
+		}
+	}
+	
+	/**
+	 * Acknowledge and queue the incoming line.
+	 *
+	 * @param line
+	 */
+	private void receive(String line) {
+		// Parse the line or skip if empty.
+		Command command = Command.parse(line);
+		if (command == null) return;
+		
+		// Keep the watchdog from stopping the motors.
+		this.received = System.currentTimeMillis();
+		this.halted = false;
+		
+		// Acknowledge with the receive time.
+		if (command.isSequenced()) {
+			this.output.println(command.ack(System.currentTimeMillis()));
+		}
+		
+		// Drop queued commands made obsolete by this one.
+		if (dropSuperseded) {
+			Iterator<Command> iterator = this.pending.iterator();
+			while (iterator.hasNext()) {
+				if (command.supersedes(iterator.next())) {
+					iterator.remove();
+					this.dropped++;
+				}
+			}
+		}
+		
+		// Queue the command for execution.
+		this.pending.add(command);
+	}
+	
+	/**
+	 * Stop the motors when no command arrived within the watchdog period.
+	 *
+	 * @param now
+	 */
+	public void check(long now) {
+		// Skip if stopped already or recently commanded.
+		if (this.halted || now - this.received < watchdog) return;
+		this.halted = true;
+		
+		// Stop the path follower and the motors.
+		System.out.println("Watchdog stopped motors");
+		if (this.follower != null) this.follower.cancel();
+		this.move(0);
+		this.collect(0, 0);
+		this.halted();
+		
+		// Tell the client to send the collecting and path again.
+		if (this.output != null) this.output.println("halted");
+	}
+	
+	/**
+	 * Called after the watchdog stopped the motors.
+	 */
+	protected void halted() {
+	}
+	
+	/**
+	 * Close the connection, ending the session.
+	 */
+	public void close() {
+		try {
+			this.socket.close();
+		} catch (Exception e) {
+			System.out.println("Socket crashed");
+		}
+	}
+	
+	/**
+	 * Execute the passed command on the motors.
+	 *
+	 * @param cmd
+	 * @throws InterruptedException
+	 */
+	protected void execute(Command cmd) throws InterruptedException {
+		// Stop following the path when driven directly.
+		if ("drive".equals(cmd.kind()) && ! cmd.name.equals("path")) {
+			this.follower.cancel();
+		}
+		
+		// Switch the found primary command.
+		switch (cmd.name) {
+		
+			// Handle move <speed> command.
+			case "move":
+				this.move(cmd.getInt(0));
+				break;
+			
+			// Handle turn <degree, speed> command.
+			case "turn":
+				this.turn(cmd.getInt(0), cmd.getInt(1));
+				break;
+			
+			// Handle drive <left speed, right speed> command.
+			case "drive":
+				this.drive(cmd.getInt(0), cmd.getInt(1));
+				break;
+			
+			// Handle path <speed, spin speed, time, x, y, rotation, points...> command.
+			case "path":
+				this.follower.start(cmd);
+				break;
+			
+			// Handle pose <x, y, rotation, time> command.
+			case "pose":
+				this.follower.correct(cmd);
+				break;
+			
+			// Handle collect <pickup spped, front speed> command.
+			case "collect":
+				this.collect(cmd.getInt(0), cmd.getInt(1));
+				break;
+			
+			// Handle beeping command.
+			case "beep":
+				this.beep(cmd.getInt(0));
+				break;
+			
+			// Handle keep command, only feeding the watchdog during timed manoeuvres.
+			case "keep":
+				break;
+				
+		}
+	}
+	
+	/**
+	 * Prepare the vehicle when the client connects.
+	 */
+	protected void connected() {
+		System.out.println("Client connected");
+	}
+	
+	/**
+	 * Set the motor movement speed.
+	 *
+	 * @param speed
+	 */
+	abstract public void move(int speed);
+	
+	/**
+	 * Turns the motors by degrees.
+	 *
+	 * @param deg
+	 * @param speed
+	 * @throws InterruptedException
+	 */
+	abstract public void turn(int deg, int speed) throws InterruptedException;
+	
+	/**
+	 * Set the collection motors movement speed.
+	 *
+	 * @param pickUpSpeed
+	 * @param frontSpeed
+	 */
+	abstract public void collect(int pickUpSpeed, int frontSpeed);
+	
+	/**
+	 * Play the passed system sound.
+	 *
+	 * @param type
+	 */
+	abstract public void beep(int type);
+	
+	/**
+	 * Returns whether or not the inner pickup motor is stalled.
+	 *
+	 * @return boolean
+	 */
+	abstract public boolean isInnerStalled();
+	
+	/**
+	 * Returns whether or not the outer front motor is stalled.
+	 *
+	 * @return boolean
+	 */
+	abstract public boolean isOuterStalled();
+	
+}
@@ -0,0 +1,454 @@
+package sphinx.device;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import sphinx.Config;
+
+public class Simulator {
+
+	/**
+	 * The port the simulator listens on.
+	 *
+	 * @var int
+	 */
+	private int port;
+
+	/**
+	 * The millis before a client command reaches the motors.
+	 *
+	 * @var int
+	 */
+	private int latency;
+
+	/**
+	 * The simulated position in pixels.
+	 *
+	 * @var double
+	 */
+	private double x = Config.Simulator.startX, y = Config.Simulator.startY;
+
+	/**
+	 * The simulated heading in radians.
+	 *
+	 * @var double
+	 */
+	private double theta = Config.Simulator.startRotation * (Math.PI / 180);
+
+	/**
+	 * The current wheel speeds in motor degrees per second.
+	 *
+	 * @var double
+	 */
+	private double left = 0, right = 0;
+
+	/**
+	 * The commanded wheel speeds in motor degrees per second.
+	 *
+	 * @var double
+	 */
+	private double targetLeft = 0, targetRight = 0;
+
+	/**
+	 * The forward motor degrees turned by the wheels.
+	 *
+	 * @var double
+	 */
+	private double leftTacho = 0, rightTacho = 0;
+
+	/**
+	 * The wheel commands waiting for their latency as <time, left, right>.
+	 *
+	 * @var LinkedList<double[]>
+	 */
+	private LinkedList<double[]> queued = new LinkedList<double[]>();
+
+	/**
+	 * The millis the model was advanced to, or 0 before the first step.
+	 *
+	 * @var long
+	 */
+	private long stepped = 0;
+
+	/**
+	 * The millis when the pickup motor started, or 0 when stopped.
+	 *
+	 * @var long
+	 */
+	private long collecting = 0;
+
+	/**
+	 * The pickup motor speed.
+	 *
+	 * @var int
+	 */
+	private int pickup = 0;
+
+	/**
+	 * The amount of executed client commands.
+	 *
+	 * @var AtomicLong
+	 */
+	public AtomicLong commands = new AtomicLong();
+
+	/**
+	 * The amount of emitted stall events.
+	 *
+	 * @var AtomicLong
+	 */
+	public AtomicLong stalls = new AtomicLong();
+
+	/**
+	 * The amount of times the watchdog stopped the motors.
+	 *
+	 * @var AtomicLong
+	 */
+	public AtomicLong halts = new AtomicLong();
+
+	/**
+	 * The pixels travelled per motor degree.
+	 *
+	 * @var double
+	 */
+	private double pixelsPerDegree = Math.PI * Config.Position.wheelDiameter / 360 * Config.Position.pixelsPerCm;
+
+	/**
+	 * The distance between the wheels in pixels.
+	 *
+	 * @var double
+	 */
+	private double wheelBase = Config.Position.wheelBase * Config.Position.pixelsPerCm;
+
+	/**
+	 * Starts the simulator and listens for requests.
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		new Simulator(Config.Client.port, Config.Simulator.latency).listen();
+	}
+
+	/**
+	 * Creates the simulator for the port and latency.
+	 *
+	 * @param port
+	 * @param latency
+	 */
+	public Simulator(int port, int latency) {
+		this.port = port;
+		this.latency = latency;
+	}
+
+	/**
+	 * Starts the simulator on background threads.
+	 */
+	public void start() {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					listen();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}, "Simulator");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Runs the model and handles incoming requests.
+	 *
+	 * @throws Exception
+	 */
+	public void listen() throws Exception {
+		// Start the kinematic model.
+		Thread model = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					step(System.currentTimeMillis());
+					try {
+						Thread.sleep(Config.Simulator.step);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}, "Simulator model");
+		model.setDaemon(true);
+		model.start();
+
+		// Attempt to start new server socket.
+		try (ServerSocket listener = new ServerSocket(this.port)) {
+			// Output running state.
+			System.out.println("Simulator is running");
+
+			// Handle incoming requests until shut down.
+			new Listener(listener).serve(new Listener.Factory() {
+				@Override
+				public Session create(Socket socket) {
+					return new SimulatorSession(socket);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Advance the kinematic model to the passed millis.
+	 *
+	 * @param now
+	 */
+	public synchronized void step(long now) {
+		// Start the clock on the first step.
+		if (this.stepped == 0) this.stepped = now;
+
+		// Integrate up to each command reaching the motors, then apply it.
+		while (! this.queued.isEmpty() && this.queued.getFirst()[0] <= now) {
+			double[] command = this.queued.removeFirst();
+			this.integrate(Math.max(this.stepped, (long) command[0]));
+			this.targetLeft = command[1];
+			this.targetRight = command[2];
+		}
+
+		// Integrate the rest of the elapsed time.
+		this.integrate(now);
+	}
+
+	/**
+	 * Move the model by the millis elapsed until the passed time.
+	 *
+	 * @param until
+	 */
+	private void integrate(long until) {
+		// Skip if no time elapsed.
+		double seconds = (until - this.stepped) / 1000.0;
+		if (seconds <= 0) return;
+		this.stepped = until;
+
+		// Accelerate the wheels towards the targets.
+		double change = Config.Position.acceleration * seconds;
+		this.left += Math.max(-change, Math.min(change, this.targetLeft - this.left));
+		this.right += Math.max(-change, Math.min(change, this.targetRight - this.right));
+
+		// Turn the wheel tachos.
+		this.leftTacho += this.left * seconds;
+		this.rightTacho += this.right * seconds;
+
+		// Move along the heading and turn by the wheel difference.
+		double speed = (this.left + this.right) / 2 * this.pixelsPerDegree;
+		this.x += speed * Math.cos(this.theta) * seconds;
+		this.y += speed * Math.sin(this.theta) * seconds;
+		this.theta += (this.left - this.right) * this.pixelsPerDegree / this.wheelBase * seconds;
+	}
+
+	/**
+	 * Returns the simulated x, y and rotation in degrees.
+	 *
+	 * @return double[]
+	 */
+	public synchronized double[] getPose() {
+		double rotation = (this.theta * (180 / Math.PI)) % 360;
+		return new double[] { this.x, this.y, rotation < 0 ? rotation + 360 : rotation };
+	}
+
+	/**
+	 * Returns the commanded left and right wheel speeds and the pickup motor speed.
+	 *
+	 * @return double[]
+	 */
+	public synchronized double[] getMotors() {
+		return new double[] { this.targetLeft, this.targetRight, this.pickup };
+	}
+
+	/**
+	 * Set the simulated pose.
+	 *
+	 * @param x
+	 * @param y
+	 * @param rotation in degrees
+	 */
+	public synchronized void setPose(double x, double y, double rotation) {
+		this.x = x;
+		this.y = y;
+		this.theta = rotation * (Math.PI / 180);
+	}
+
+	/**
+	 * Queue wheel speeds to reach the motors after the delay.
+	 *
+	 * @param left
+	 * @param right
+	 * @param delay
+	 */
+	private synchronized void command(double left, double right, long delay) {
+		this.queued.add(new double[] { System.currentTimeMillis() + delay, left, right });
+	}
+
+	/**
+	 * Runtime for a simulated client socket connection.
+	 */
+	private class SimulatorSession extends Session {
+
+		/**
+		 * The thread reading the client commands.
+		 *
+		 * @var Thread
+		 */
+		private Thread reader;
+
+		/**
+		 * Saves the socket on the instance.
+		 *
+		 * @param socket
+		 */
+		public SimulatorSession(Socket socket) {
+			super(socket);
+		}
+
+		/**
+		 * Save the command reading thread.
+		 */
+		@Override
+		protected void connected() {
+			super.connected();
+			this.reader = Thread.currentThread();
+		}
+
+		/**
+		 * Execute and count the passed command.
+		 *
+		 * @param cmd
+		 * @throws InterruptedException
+		 */
+		@Override
+		protected void execute(Command cmd) throws InterruptedException {
+			super.execute(cmd);
+			commands.incrementAndGet();
+		}
+
+		/**
+		 * Set the motor movement speed.
+		 *
+		 * @param speed
+		 */
+		public void move(int speed) {
+			this.drive(speed, speed);
+		}
+
+		/**
+		 * Turns the motors by degrees.
+		 *
+		 * @param deg
+		 * @param speed
+		 */
+		public void turn(int deg, int speed) {
+			if (deg > 0) {
+				this.drive(speed, -speed);
+			} else if (deg < 0) {
+				this.drive(-speed, speed);
+			}
+		}
+
+		/**
+		 * Set the left and right wheel speeds separately.
+		 * Client commands are delayed by the latency, follower commands are not.
+		 *
+		 * @param left
+		 * @param right
+		 */
+		public void drive(int left, int right) {
+			command(left, right, Thread.currentThread() == this.reader ? latency : 0);
+		}
+
+		/**
+		 * Returns the forward motor degrees turned by the left wheel.
+		 *
+		 * @return int
+		 */
+		public int getLeftTacho() {
+			synchronized (Simulator.this) {
+				return (int) leftTacho;
+			}
+		}
+
+		/**
+		 * Returns the forward motor degrees turned by the right wheel.
+		 *
+		 * @return int
+		 */
+		public int getRightTacho() {
+			synchronized (Simulator.this) {
+				return (int) rightTacho;
+			}
+		}
+
+		/**
+		 * Set the collection motors movement speed.
+		 *
+		 * @param pickUpSpeed
+		 * @param frontSpeed
+		 */
+		public void collect(int pickUpSpeed, int frontSpeed) {
+			synchronized (Simulator.this) {
+				pickup = pickUpSpeed;
+				if (pickUpSpeed <= 0) {
+					collecting = 0;
+				} else if (collecting == 0) {
+					collecting = System.currentTimeMillis();
+				}
+			}
+		}
+
+		/**
+		 * Count the motors stopped by the watchdog.
+		 */
+		@Override
+		protected void halted() {
+			halts.incrementAndGet();
+		}
+
+		/**
+		 * Output the passed system sound.
+		 *
+		 * @param type
+		 */
+		public void beep(int type) {
+			System.out.println("Beep " + type);
+		}
+
+		/**
+		 * Returns whether or not the stall interval of collecting has passed.
+		 *
+		 * @return boolean
+		 */
+		public boolean isInnerStalled() {
+			synchronized (Simulator.this) {
+				// Skip if stalls are disabled or not collecting.
+				if (Config.Simulator.stallInterval <= 0 || collecting == 0) return false;
+
+				// Stall and restart the interval when passed.
+				long now = System.currentTimeMillis();
+				if (now - collecting < Config.Simulator.stallInterval) return false;
+				collecting = now;
+				stalls.incrementAndGet();
+				return true;
+			}
+		}
+
+		/**
+		 * Returns whether or not the outer front motor is stalled.
+		 *
+		 * @return boolean
+		 */
+		public boolean isOuterStalled() {
+			return false;
+		}
+
+	}
+
+}
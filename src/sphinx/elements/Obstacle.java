@@ -4,15 +4,22 @@ import java.util.List;
 import org.opencv.core.Point;
 import org.opencv.core.RotatedRect;
 import org.opencv.core.Scalar;
-import org.opencv.imgproc.Imgproc;
 
 import sphinx.Config;
 import sphinx.vision.Frame;
+import sphinx.vision.Overlay;
 
 import org.opencv.core.MatOfPoint;
 
 public class Obstacle {
 	
+	/**
+	 * The colors of the drawn bounding lines and corners.
+	 *
+	 * @var Scalar
+	 */
+	private static final Scalar BOUND = new Scalar(255, 0, 0), CORNER = new Scalar(255, 0, 255);
+	
 	/**
 	 * The points creating the obstacle.
 	 *
@@ -52,11 +59,11 @@ public class Obstacle {
 	}
 
 	/**
-	 * Draw the obstacle points on the screen.
+	 * Draw the obstacle points on the overlay.
 	 *
-	 * @param frame
+	 * @param overlay
 	 */
-	public void draw(Frame frame) {
+	public void draw(Overlay overlay) {
 		// Loop through the four points.
 		for (int j = 0; j < 4; j++) {
 			// Skip if point is not set.
@@ -64,11 +71,11 @@ public class Obstacle {
 			
 			// Draw the bounding lines.
 			if (this.points[(j+1) % 4] != null) {
-				Imgproc.line(frame.getSource(), this.points[j], this.points[(j+1) % 4], new Scalar(255,0,0));
+				overlay.line(this.points[j], this.points[(j+1) % 4], BOUND);
 			}
 			
 			// Draw the corner circles.
-			Imgproc.circle(frame.getSource(), this.points[j], 3, new Scalar(255, 0, 255), -1);
+			overlay.circle(this.points[j], 3, CORNER, -1);
 		}
 	}
 	
@@ -9,16 +9,40 @@ import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 
 import sphinx.Config;
+import sphinx.vision.Buffers;
 import sphinx.vision.Frame;
+import sphinx.vision.Overlay;
+import sphinx.vision.Projector;
 
 public class Targets {
 	
+	/**
+	 * The colors of the drawn circles and centers.
+	 *
+	 * @var Scalar
+	 */
+	private static final Scalar FILL = new Scalar(0, 255, 0), CENTER = new Scalar(0, 0, 100);
+	
 	/**
 	 * The mat containing the circles.
 	 *
 	 * @var Mat
 	 */
-	private Mat circles;
+	private Mat circles = new Mat();
+	
+	/**
+	 * The circles as <x, y, radius> copied from the mat.
+	 *
+	 * @var float[]
+	 */
+	private float[] buffer;
+	
+	/**
+	 * The amount of circles in the buffer.
+	 *
+	 * @var int
+	 */
+	private int count = 0;
 	
 	/**
 	 * The points of the circles.
@@ -86,6 +110,30 @@ public class Targets {
 	 */
 	private double DP = Config.Targets.DP;
 	
+	/**
+	 * The resolution the circles are searched at, 1 = full, 0.5 = half.
+	 *
+	 * @var double
+	 */
+	private double scale = 1;
+	
+	/**
+	 * The input frame downscaled to the search resolution.
+	 *
+	 * @var Frame
+	 */
+	private Frame scaled = new Frame("Scaled - Targets");
+	
+	/**
+	 * The projector moving the ball centers onto the floor.
+	 *
+	 * @var Projector
+	 */
+	private Projector projector = new Projector(
+		Config.Position.ballHeight,
+		Config.Position.cameraHeight
+	);
+	
 	/*
 	 * Attempt to detect the target positions.
 	 *
@@ -94,19 +142,27 @@ public class Targets {
 	public void detect(Frame input) {		
 		// Reset lists before detection.
 		this.points.clear();
-		this.circles = new Mat();
+
+		// Downscale the input to the search resolution.
+		Frame source = input;
+		if (this.scale < 1) {
+			Imgproc.resize(input.getSource(), this.scaled.getSource(), new Size(), this.scale, this.scale, Imgproc.INTER_AREA);
+			this.scaled.stamp(input);
+			source = this.scaled;
+		}
 
 		// Isolate the white color from the image.
-		input.isolateRange(this.frame,
+		source.isolateRange(this.frame,
 			Config.Colors.whiteLower,
 			Config.Colors.whiteUpper
 		);
 
 		// Find structured list of ellipse elements.
+		int kernel = Math.max(1, (int) Math.round(this.kernelSize * this.scale));
 		Mat element = Imgproc.getStructuringElement(
 			Imgproc.CV_SHAPE_ELLIPSE,
-			new Size(2 * this.kernelSize + 1, 2 * this.kernelSize + 1),
-			new Point(this.kernelSize, this.kernelSize)
+			new Size(2 * kernel + 1, 2 * kernel + 1),
+			new Point(kernel, kernel)
 		);
 		
 		// Dilate the found elements.
@@ -115,44 +171,67 @@ public class Targets {
 		// Find and save the circles in passed frame.
 		Imgproc.HoughCircles(
 			this.frame.getSource(), this.circles, Imgproc.HOUGH_GRADIENT,
-			this.DP, this.minDistance,
+			this.DP, Math.max(1, this.minDistance * this.scale),
 			this.param1, this.param2,
-			this.minRadius, this.maxRadius
+			(int) Math.floor(this.minRadius * this.scale), (int) Math.ceil(this.maxRadius * this.scale)
 		);
 		
+		// Find input width and height.
+		double width = input.getSource().cols();
+		double height = input.getSource().rows();
+		
+		// Copy all circles in one transfer.
+		this.buffer = Buffers.read(this.circles, this.buffer);
+		this.count = (int) this.circles.total();
+		
 		// Loop through the circle length.
-    	for(int i = 0; i < this.circles.cols(); i++) {
-    		// Find center point of the target.
-    		double[] center = circles.get(0, i);
+    	for(int i = 0; i < this.count; i++) {
+    		// Scale the circle back to the input resolution.
+    		for (int k = i * 3; k < i * 3 + 3; k++) {
+    			this.buffer[k] /= this.scale;
+    		}
     		
     		// Skip if false circle in top left.
-    		if (center[0] == 0 && center[1] == 0) {
+    		if (this.buffer[i * 3] == 0 && this.buffer[i * 3 + 1] == 0) {
     			continue;
     		}
     		
-    		// Add new target center point to list.
-    		this.points.add(new Point(center[0], center[1]));
+    		// Add new target floor point to list.
+    		this.points.add(this.projector.project(this.buffer[i * 3], this.buffer[i * 3 + 1], width, height));
     	}
 	}
+	
+	/**
+	 * Set the accumulator resolution of the circle search.
+	 *
+	 * @param DP
+	 */
+	public void setDP(double DP) {
+		this.DP = DP;
+	}
+	
+	/**
+	 * Set the resolution the circles are searched at.
+	 *
+	 * @param scale
+	 */
+	public void setScale(double scale) {
+		this.scale = Math.min(1, scale);
+	}
 
 	/**
-	 * Draw the target points on the screen.
+	 * Draw the target points on the overlay.
 	 *
-	 * @param frame
+	 * @param overlay
 	 */
-	public void draw(Frame frame) {
+	public void draw(Overlay overlay) {
 		// Loop though the circles.
-		for (int x = 0; x < this.circles.cols(); x++) {
-			// Get the current circle.
-            double[] c = this.circles.get(0, x);
-
-            // Create new point for circle.
-            Point center = new Point(Math.round(c[0]), Math.round(c[1]));
-
+		for (int x = 0; x < this.count; x++) {
             // Add circle to center based on radius.
-            int radius = (int) Math.round(c[2]);
-            Imgproc.circle(frame.getSource(), center, radius + 1, new Scalar(0, 255, 0), -1);
-            Imgproc.circle(frame.getSource(), center, 3, new Scalar(0, 0, 100), -1);
+            double cx = Math.round(this.buffer[x * 3]), cy = Math.round(this.buffer[x * 3 + 1]);
+            int radius = Math.round(this.buffer[x * 3 + 2]);
+            overlay.circle(cx, cy, radius + 1, FILL, -1);
+            overlay.circle(cx, cy, 3, CENTER, -1);
 		}
 	}
 	
@@ -0,0 +1,308 @@
+package sphinx.elements;
+
+import sphinx.Config;
+
+public class Tracker {
+
+	/**
+	 * The filter for the horizontal position.
+	 *
+	 * @var Axis
+	 */
+	private Axis x = new Axis(Config.Tracker.accelerationNoise, Config.Tracker.positionNoise);
+
+	/**
+	 * The filter for the vertical position.
+	 *
+	 * @var Axis
+	 */
+	private Axis y = new Axis(Config.Tracker.accelerationNoise, Config.Tracker.positionNoise);
+
+	/**
+	 * The filter for the heading in degrees.
+	 *
+	 * @var Axis
+	 */
+	private Axis heading = new Axis(Config.Tracker.turnNoise, Config.Tracker.headingNoise);
+
+	/**
+	 * The millis of the current state.
+	 *
+	 * @var long
+	 */
+	private long time = 0;
+
+	/**
+	 * The amount of frames predicted without a measurement.
+	 *
+	 * @var int
+	 */
+	public int missed = 0;
+
+	/**
+	 * The initialized state of the filter.
+	 *
+	 * @var boolean
+	 */
+	public boolean tracking = false;
+
+	/**
+	 * Correct the state with a measured pose.
+	 *
+	 * @param x
+	 * @param y
+	 * @param rotation in degrees
+	 * @param time
+	 */
+	public void update(double x, double y, double rotation, long time) {
+		// Restart the filter if not tracking.
+		if (! this.tracking) {
+			this.x.reset(x);
+			this.y.reset(y);
+			this.heading.reset(rotation);
+			this.time = time;
+			this.tracking = true;
+			this.missed = 0;
+			return;
+		}
+
+		// Predict to the measurement time.
+		this.advance(time);
+
+		// Find the heading innovation along the shortest direction.
+		double diff = (rotation - this.heading.value) % 360;
+		if (diff > 180) {
+			diff -= 360;
+		} else if (diff < -180) {
+			diff += 360;
+		}
+
+		// Correct the state with the measurement.
+		this.x.correct(x - this.x.value);
+		this.y.correct(y - this.y.value);
+		this.heading.correct(diff);
+		this.missed = 0;
+	}
+
+	/**
+	 * Predict the state through a frame without measurement.
+	 * Returns false when the dropout is too long to bridge.
+	 *
+	 * @param time
+	 * @return boolean
+	 */
+	public boolean predict(long time) {
+		// Skip if not tracking.
+		if (! this.tracking) return false;
+
+		// Stop tracking when the dropout limit is reached.
+		if (++this.missed > Config.Tracker.maxMissed) {
+			this.tracking = false;
+			return false;
+		}
+
+		// Predict to the frame time.
+		this.advance(time);
+		return true;
+	}
+
+	/**
+	 * Advance the state to the passed millis.
+	 *
+	 * @param time
+	 */
+	private void advance(long time) {
+		// Find the elapsed seconds.
+		double dt = (time - this.time) / 1000.0;
+		if (dt <= 0) return;
+
+		// Predict every axis.
+		this.x.predict(dt);
+		this.y.predict(dt);
+		this.heading.predict(dt);
+		this.time = time;
+	}
+
+	/**
+	 * Returns the filtered horizontal position.
+	 *
+	 * @return double
+	 */
+	public double getX() {
+		return this.x.value;
+	}
+
+	/**
+	 * Returns the filtered vertical position.
+	 *
+	 * @return double
+	 */
+	public double getY() {
+		return this.y.value;
+	}
+
+	/**
+	 * Returns the filtered rotation within a full circle.
+	 *
+	 * @return double
+	 */
+	public double getRotation() {
+		double rotation = this.heading.value % 360;
+		return rotation < 0 ? rotation + 360 : rotation;
+	}
+
+	/**
+	 * Returns the filtered turn rate in degrees per second.
+	 *
+	 * @return double
+	 */
+	public double getTurnRate() {
+		return this.heading.rate;
+	}
+
+	/**
+	 * Returns the filtered speed in pixels per second.
+	 *
+	 * @return double
+	 */
+	public double getSpeed() {
+		return Math.sqrt(this.x.rate * this.x.rate + this.y.rate * this.y.rate);
+	}
+
+	/**
+	 * Returns the position standard deviation in pixels.
+	 *
+	 * @return double
+	 */
+	public double getPositionDeviation() {
+		return Math.sqrt(this.x.p00 + this.y.p00);
+	}
+
+	/**
+	 * Returns the heading standard deviation in degrees.
+	 *
+	 * @return double
+	 */
+	public double getHeadingDeviation() {
+		return Math.sqrt(this.heading.p00);
+	}
+
+	/**
+	 * Returns the state covariance ordered by x, vx, y, vy, heading, turn rate.
+	 *
+	 * @return double[][]
+	 */
+	public double[][] getCovariance() {
+		// Prepare the block diagonal matrix.
+		double[][] covariance = new double[6][6];
+		Axis[] axes = { this.x, this.y, this.heading };
+
+		// Copy the covariance of every axis.
+		for (int i = 0; i < 3; i++) {
+			covariance[2 * i][2 * i] = axes[i].p00;
+			covariance[2 * i][2 * i + 1] = axes[i].p01;
+			covariance[2 * i + 1][2 * i] = axes[i].p01;
+			covariance[2 * i + 1][2 * i + 1] = axes[i].p11;
+		}
+
+		// Return the covariance.
+		return covariance;
+	}
+
+	/**
+	 * Constant rate kalman filter for a single axis.
+	 */
+	private static class Axis {
+
+		/**
+		 * The filtered value and rate.
+		 *
+		 * @var double
+		 */
+		double value, rate;
+
+		/**
+		 * The covariance of value and rate.
+		 *
+		 * @var double
+		 */
+		double p00, p01, p11;
+
+		/**
+		 * The process noise of the rate change.
+		 *
+		 * @var double
+		 */
+		double process;
+
+		/**
+		 * The variance of the measurement.
+		 *
+		 * @var double
+		 */
+		double measurement;
+
+		/**
+		 * Creates the axis with noise deviations.
+		 *
+		 * @param process
+		 * @param measurement
+		 */
+		Axis(double process, double measurement) {
+			this.process = process * process;
+			this.measurement = measurement * measurement;
+		}
+
+		/**
+		 * Restart the axis at the passed value.
+		 *
+		 * @param value
+		 */
+		void reset(double value) {
+			this.value = value;
+			this.rate = 0;
+			this.p00 = this.measurement;
+			this.p01 = 0;
+			this.p11 = this.process;
+		}
+
+		/**
+		 * Predict the axis forward by seconds.
+		 *
+		 * @param dt
+		 */
+		void predict(double dt) {
+			// Move the value by the rate.
+			this.value += this.rate * dt;
+
+			// Propagate the covariance with the white acceleration noise.
+			double dt2 = dt * dt;
+			this.p00 += dt * (2 * this.p01 + dt * this.p11) + this.process * dt2 * dt2 / 4;
+			this.p01 += dt * this.p11 + this.process * dt2 * dt / 2;
+			this.p11 += this.process * dt2;
+		}
+
+		/**
+		 * Correct the axis with a measurement innovation.
+		 *
+		 * @param innovation
+		 */
+		void correct(double innovation) {
+			// Find the kalman gains.
+			double s = this.p00 + this.measurement;
+			double k0 = this.p00 / s;
+			double k1 = this.p01 / s;
+
+			// Correct the value and rate.
+			this.value += k0 * innovation;
+			this.rate += k1 * innovation;
+
+			// Correct the covariance.
+			this.p11 -= k1 * this.p01;
+			this.p01 -= k1 * this.p00;
+			this.p00 -= k0 * this.p00;
+		}
+
+	}
+
+}
@@ -7,14 +7,22 @@ import org.opencv.core.MatOfPoint2f;
 import org.opencv.core.Point;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
-import org.opencv.imgproc.Moments;
 
 import sphinx.Config;
+import sphinx.vision.Buffers;
 import sphinx.vision.Frame;
+import sphinx.vision.Overlay;
 import sphinx.vision.Projector;
 
 public class Vehicle {
 	
+	/**
+	 * The colors of the drawn outer and center points.
+	 *
+	 * @var Scalar
+	 */
+	private static final Scalar POINT = new Scalar(0, 0, 255), CENTER = new Scalar(255, 0, 0);
+	
 	/**
 	 * The vehicles back point.
 	 *
@@ -51,11 +59,46 @@ public class Vehicle {
 	public Double rotation = 0.0;
 	
 	/**
-	 * The triangle points all combined.
+	 * The millis when the pose was captured.
+	 *
+	 * @var long
+	 */
+	public long timestamp = 0;
+	
+	/**
+	 * The number of the capture the pose came from.
+	 *
+	 * @var long
+	 */
+	public long sequence = 0;
+	
+	/**
+	 * The filter smoothing and bridging the pose.
+	 *
+	 * @var Tracker
+	 */
+	public Tracker tracker = new Tracker();
+	
+	/**
+	 * Whether or not the pose is predicted through a missed frame.
+	 *
+	 * @var boolean
+	 */
+	public boolean bridged = false;
+	
+	/**
+	 * The triangle points all combined, written on request.
 	 *
 	 * @var MatOfPoint2f
 	 */
-	public MatOfPoint2f triangle;
+	private MatOfPoint2f triangle = new MatOfPoint2f();
+	
+	/**
+	 * The reused coordinate buffer of the triangle.
+	 *
+	 * @var float[]
+	 */
+	private float[] buffer;
 	
 	/**
 	 * The frame with the isolated color.
@@ -67,7 +110,7 @@ public class Vehicle {
 	/**
 	 * The position transformer instance.
 	 *
-	 * @var PositionTransform
+	 * @var Projector
 	 */
 	private Projector projector = new Projector(
 		Config.Position.carHeight,
@@ -86,20 +129,23 @@ public class Vehicle {
 			Config.Colors.blueUpper
 		);
 		
-		// Find largest triangle and return out if missing.
+		// Find largest triangle and bridge the pose if missing.
 		MatOfPoint2f triangle = this.findTriangle(this.frame);
-		if (triangle == null) return;
+		if (triangle == null) {
+			this.bridge(input.captured, input.sequence);
+			return;
+		}
 		
 		// Get list of points from triangle.
-		this.points = triangle.toArray();
+		this.buffer = Buffers.read(triangle, this.buffer);
+		this.points = Buffers.points(this.buffer, 3);
 		
 		// Find frame width and height.
 		double width = this.frame.getSource().cols();
 		double height = this.frame.getSource().rows();
 		
 		// Transform the found points.
-		this.projector.transformPosition(this.points, width, height);
-		this.triangle = new MatOfPoint2f(this.points);
+		this.points = this.projector.transformPosition(this.points, width, height);
 
 		// Find the front point in the triangle.
 		this.front = this.findFront(this.points);
@@ -108,39 +154,154 @@ public class Vehicle {
 		this.back = this.findBack(this.points);
 		
 		// Find the center point of the triangle.
-		this.center = this.findCenter(this.triangle);
+		this.center = this.findCenter(this.points);
 		
 		// Find the rotation of the triangle.
 		this.rotation = this.findRotation(this.front, this.back);
+		
+		// Save the capture time of the pose.
+		this.timestamp = input.captured;
+		this.sequence = input.sequence;
+		
+		// Smooth the measured pose with the tracker.
+		this.tracker.update(this.center.x, this.center.y, this.rotation, this.timestamp);
+		this.follow();
+		this.bridged = false;
+	}
+	
+	/**
+	 * Predict the pose through a frame where detection failed.
+	 *
+	 * @param time
+	 * @param sequence
+	 */
+	private void bridge(long time, long sequence) {
+		// Keep the previous pose if the dropout is too long.
+		if (this.points == null || ! this.tracker.predict(time)) return;
+		
+		// Move the previous pose to the predicted one.
+		this.follow();
+		this.timestamp = time;
+		this.sequence = sequence;
+		this.bridged = true;
+	}
+	
+	/**
+	 * Move the pose onto the tracker state.
+	 */
+	private void follow() {
+		this.project(this,
+			this.tracker.getX() - this.center.x,
+			this.tracker.getY() - this.center.y,
+			this.tracker.getRotation() - this.rotation
+		);
+	}
+	
+	/**
+	 * Copy the pose moved and rotated around the center into destination.
+	 *
+	 * @param destination
+	 * @param dx
+	 * @param dy
+	 * @param degrees
+	 */
+	public void project(Vehicle destination, double dx, double dy, double degrees) {
+		// Skip if the pose is missing.
+		if (this.points == null) return;
+		
+		// Find the rotation around the center.
+		double rad = degrees * (Math.PI / 180);
+		double cos = Math.cos(rad);
+		double sin = Math.sin(rad);
+		
+		// Transform the triangle points.
+		Point front = null;
+		Point[] points = new Point[this.points.length];
+		for (int i = 0; i < this.points.length; i++) {
+			points[i] = this.transform(this.points[i], dx, dy, cos, sin);
+			
+			// Keep the front point as one of the triangle points.
+			if (this.points[i] == this.front) {
+				front = points[i];
+			}
+		}
+		
+		// Transform the remaining pose.
+		Point back = this.transform(this.back, dx, dy, cos, sin);
+		Point center = new Point(this.center.x + dx, this.center.y + dy);
+		
+		// Find the rotation kept within a full circle.
+		double rotation = (this.rotation + degrees) % 360;
+		
+		// Save the pose on the destination.
+		destination.points = points;
+		destination.front = front;
+		destination.back = back;
+		destination.center = center;
+		destination.rotation = rotation < 0 ? rotation + 360 : rotation;
+		destination.timestamp = this.timestamp;
+		destination.sequence = this.sequence;
+	}
+	
+	/**
+	 * Returns the triangle points combined for polygon tests.
+	 *
+	 * @return MatOfPoint2f
+	 */
+	public MatOfPoint2f getTriangle() {
+		this.buffer = Buffers.write(this.points, this.triangle, this.buffer);
+		return this.triangle;
+	}
+	
+	/**
+	 * Returns the point rotated around the center and moved.
+	 *
+	 * @param point
+	 * @param dx
+	 * @param dy
+	 * @param cos
+	 * @param sin
+	 * @return Point
+	 */
+	private Point transform(Point point, double dx, double dy, double cos, double sin) {
+		// Find the point relative to the center.
+		double x = point.x - this.center.x;
+		double y = point.y - this.center.y;
+		
+		// Return the rotated and moved point.
+		return new Point(
+			this.center.x + (x * cos - y * sin) + dx,
+			this.center.y + (x * sin + y * cos) + dy
+		);
 	}
 
 	/**
-	 * Draw the vehicle points on the screen.
+	 * Draw the vehicle points on the overlay.
 	 *
-	 * @param frame
+	 * @param overlay
 	 */
-	public void draw(Frame frame) {
+	public void draw(Overlay overlay) {
 		// Draw vehicle corner points.
 		if (this.points != null) {
 			for (int i = 0; i < 3; i++) {
 				if (this.points[i] == null) continue;
-				Imgproc.circle(frame.getSource(), this.points[i], 3, new Scalar(0, 0, 255));
+				overlay.circle(this.points[i], 3, POINT, 1);
 			}
 		}
 		
 		// Draw the vehicles back point.
 		if (this.back != null) {
-			Imgproc.circle(frame.getSource(), this.back, 3, new Scalar(0, 0, 255));
+			overlay.circle(this.back, 3, POINT, 1);
 		}
 		
 		// Draw the vehicles front point.
 		if (this.front != null) {
-			Imgproc.circle(frame.getSource(), this.front, 6, new Scalar(0, 0, 255));
+			overlay.circle(this.front, 6, POINT, 1);
 		}
 		
 		// Draw the vehicles center point.
 		if (this.center != null) {
-			Imgproc.circle(frame.getSource(), this.center, 3, new Scalar(255, 0, 0), Imgproc.FILLED);
+			overlay.circle(this.center, 3, CENTER, Imgproc.FILLED);
 		}
 	}
 	
@@ -222,18 +383,16 @@ public class Vehicle {
 	
 	/**
 	 * Find the center point of the triangle contour.
+	 * The area centroid of a triangle is the mean of its corners.
 	 *
-	 * @param triangle
+	 * @param points
 	 * @return Point
 	 */
-	private Point findCenter(MatOfPoint2f triangle) {
-		// Find moments for the triangle.
-		Moments moments = Imgproc.moments(triangle);
-		
+	private Point findCenter(Point[] points) {
 		// Create point and set x, and y positions.
 		Point center = new Point();
-		center.x = moments.get_m10() / moments.get_m00();
-		center.y = moments.get_m01() / moments.get_m00();
+		center.x = (points[0].x + points[1].x + points[2].x) / 3;
+		center.y = (points[0].y + points[1].y + points[2].y) / 3;
 		
 		// Return the found center point.
 		return center;
@@ -0,0 +1,273 @@
+package sphinx.vision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+public class Arena implements Source {
+
+	/**
+	 * The colors used for rendering in BGR.
+	 *
+	 * @var Scalar
+	 */
+	private static final Scalar floor = new Scalar(70, 80, 75);
+	private static final Scalar red = new Scalar(30, 20, 200);
+	private static final Scalar white = new Scalar(245, 245, 245);
+	private static final Scalar blue = new Scalar(220, 100, 20);
+
+	/**
+	 * The width and height of the rendered frames.
+	 *
+	 * @var int
+	 */
+	private int width, height;
+
+	/**
+	 * The amount of balls on the field.
+	 *
+	 * @var int
+	 */
+	private int balls;
+
+	/**
+	 * The radius of the balls in pixels.
+	 *
+	 * @var int
+	 */
+	private int radius = 9;
+
+	/**
+	 * The distance from the vehicle center to its front in pixels.
+	 *
+	 * @var double
+	 */
+	private double vehicleSize = 30;
+
+	/**
+	 * The vehicle pose as x, y and rotation in degrees.
+	 *
+	 * @var double[]
+	 */
+	private double[] vehicle;
+
+	/**
+	 * The standard deviation of the pixel noise.
+	 *
+	 * @var double
+	 */
+	private double noise = 6;
+
+	/**
+	 * The gaussian blur kernel size, or 0 to disable.
+	 *
+	 * @var int
+	 */
+	private int blur = 3;
+
+	/**
+	 * The placed ball centers.
+	 *
+	 * @var ArrayList<Point>
+	 */
+	public ArrayList<Point> points = new ArrayList<Point>();
+
+	/**
+	 * The random generator for placement.
+	 *
+	 * @var Random
+	 */
+	private Random random;
+
+	/**
+	 * The rendered scene without noise.
+	 *
+	 * @var Mat
+	 */
+	private Mat scene;
+
+	/**
+	 * The reused noise holder.
+	 *
+	 * @var Mat
+	 */
+	private Mat grain;
+
+	/**
+	 * Creates the arena renderer with the vehicle at the field center.
+	 *
+	 * @param width
+	 * @param height
+	 * @param balls
+	 * @param seed
+	 */
+	public Arena(int width, int height, int balls, long seed) {
+		this.width = width;
+		this.height = height;
+		this.balls = balls;
+		this.random = new Random(seed);
+		this.vehicle = new double[] { width * 0.3, height * 0.5, 0 };
+		this.render();
+	}
+
+	/**
+	 * Move the vehicle to the passed pose.
+	 *
+	 * @param x
+	 * @param y
+	 * @param rotation
+	 */
+	public void setVehicle(double x, double y, double rotation) {
+		this.vehicle = new double[] { x, y, rotation };
+		this.render();
+	}
+
+	/**
+	 * Set the noise deviation and blur kernel size.
+	 *
+	 * @param noise
+	 * @param blur
+	 */
+	public void setQuality(double noise, int blur) {
+		this.noise = noise;
+		this.blur = blur;
+	}
+
+	/**
+	 * The millis when the last frame was read.
+	 *
+	 * @var long
+	 */
+	private long captured = 0;
+
+	/**
+	 * Reads a noisy copy of the scene into the passed destination.
+	 *
+	 * @param destination
+	 * @return boolean
+	 */
+	@Override
+	public boolean read(Mat destination) {
+		// Copy the rendered scene.
+		this.captured = System.currentTimeMillis();
+		this.scene.copyTo(destination);
+
+		// Add fresh pixel noise.
+		if (this.noise > 0) {
+			Core.randn(this.grain, 0, this.noise);
+			Core.add(destination, this.grain, destination, new Mat(), CvType.CV_8UC3);
+		}
+
+		// Blur the frame like a camera lens.
+		if (this.blur > 0) {
+			Imgproc.GaussianBlur(destination, destination, new Size(this.blur, this.blur), 0);
+		}
+
+		// Return success.
+		return true;
+	}
+
+	/**
+	 * Returns the millis when the last frame was read, as the scene is rendered live.
+	 *
+	 * @return long
+	 */
+	@Override
+	public long captured() {
+		return this.captured;
+	}
+
+	/**
+	 * Returns -1 as rendered scenes have no video position.
+	 *
+	 * @return double
+	 */
+	@Override
+	public double position() {
+		return -1;
+	}
+
+	/**
+	 * Render the field, cross, balls and vehicle.
+	 */
+	private void render() {
+		// Prepare the floor and noise holder.
+		this.scene = new Mat(this.height, this.width, CvType.CV_8UC3, floor);
+		this.grain = new Mat(this.height, this.width, CvType.CV_16SC3);
+
+		// Draw the field border inside a margin.
+		int margin = Math.round(Math.min(this.width, this.height) * 0.04f);
+		int border = Math.max(4, Math.round(Math.min(this.width, this.height) * 0.015f));
+		Imgproc.rectangle(this.scene,
+			new Point(margin, margin),
+			new Point(this.width - margin, this.height - margin),
+			red, border
+		);
+
+		// Draw the cross at the field center.
+		double arm = Math.min(this.width, this.height) * 0.1;
+		int bar = Math.max(4, Math.round(Math.min(this.width, this.height) * 0.02f));
+		Point center = new Point(this.width / 2.0, this.height / 2.0);
+		double cos = Math.cos(Math.PI / 4) * arm, sin = Math.sin(Math.PI / 4) * arm;
+		Imgproc.line(this.scene, new Point(center.x - cos, center.y - sin), new Point(center.x + cos, center.y + sin), red, bar);
+		Imgproc.line(this.scene, new Point(center.x - cos, center.y + sin), new Point(center.x + cos, center.y - sin), red, bar);
+
+		// Place the balls clear of the border, cross, vehicle and each other.
+		this.points.clear();
+		double inset = margin + border + this.radius * 2;
+		for (int tries = 0; this.points.size() < this.balls && tries < this.balls * 50; tries++) {
+			Point ball = new Point(
+				inset + this.random.nextDouble() * (this.width - 2 * inset),
+				inset + this.random.nextDouble() * (this.height - 2 * inset)
+			);
+
+			// Skip if overlapping the cross or vehicle.
+			if (this.distance(ball, center) < arm + this.radius * 2) continue;
+			if (this.distance(ball, new Point(this.vehicle[0], this.vehicle[1])) < this.vehicleSize + this.radius * 2) continue;
+
+			// Skip if overlapping another ball.
+			boolean free = true;
+			for (Point other : this.points) {
+				if (this.distance(ball, other) < this.radius * 3) {
+					free = false;
+					break;
+				}
+			}
+
+			// Draw and save the ball.
+			if (! free) continue;
+			Imgproc.circle(this.scene, ball, this.radius, white, -1);
+			this.points.add(ball);
+		}
+
+		// Draw the vehicle triangle.
+		double rad = this.vehicle[2] * (Math.PI / 180);
+		double vx = Math.cos(rad) * this.vehicleSize, vy = Math.sin(rad) * this.vehicleSize;
+		Imgproc.fillPoly(this.scene, Arrays.asList(new MatOfPoint(
+			new Point(this.vehicle[0] + vx, this.vehicle[1] + vy),
+			new Point(this.vehicle[0] - vx / 2 + vy / 2, this.vehicle[1] - vy / 2 - vx / 2),
+			new Point(this.vehicle[0] - vx / 2 - vy / 2, this.vehicle[1] - vy / 2 + vx / 2)
+		)), blue);
+	}
+
+	/**
+	 * Returns the length between two points.
+	 *
+	 * @param a
+	 * @param b
+	 * @return double
+	 */
+	private double distance(Point a, Point b) {
+		return Math.sqrt(Math.pow(a.x - b.x, 2) + Math.pow(a.y - b.y, 2));
+	}
+
+}
@@ -0,0 +1,91 @@
+package sphinx.vision;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+
+public class Buffers {
+
+	/**
+	 * Copies all values of a float Mat into the buffer with a single call.
+	 * Returns the passed buffer, or a larger one if it was too small.
+	 *
+	 * @param mat
+	 * @param buffer
+	 * @return float[]
+	 */
+	public static float[] read(Mat mat, float[] buffer) {
+		// Grow the buffer to the amount of values.
+		int size = (int) mat.total() * mat.channels();
+		if (buffer == null || buffer.length < size) {
+			buffer = new float[size];
+		}
+
+		// Copy the values when not empty.
+		if (size > 0) mat.get(0, 0, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Copies all values of an int Mat into the buffer with a single call.
+	 * Returns the passed buffer, or a larger one if it was too small.
+	 *
+	 * @param mat
+	 * @param buffer
+	 * @return int[]
+	 */
+	public static int[] read(Mat mat, int[] buffer) {
+		// Grow the buffer to the amount of values.
+		int size = (int) mat.total() * mat.channels();
+		if (buffer == null || buffer.length < size) {
+			buffer = new int[size];
+		}
+
+		// Copy the values when not empty.
+		if (size > 0) mat.get(0, 0, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Copies the points into a two channel float Mat with a single call.
+	 * Returns the passed buffer, or a larger one if it was too small.
+	 *
+	 * @param points
+	 * @param mat
+	 * @param buffer
+	 * @return float[]
+	 */
+	public static float[] write(Point[] points, Mat mat, float[] buffer) {
+		// Grow the buffer to the amount of values.
+		if (buffer == null || buffer.length < points.length * 2) {
+			buffer = new float[points.length * 2];
+		}
+
+		// Pack the coordinates.
+		for (int i = 0; i < points.length; i++) {
+			buffer[i * 2] = (float) points[i].x;
+			buffer[i * 2 + 1] = (float) points[i].y;
+		}
+
+		// Size the Mat and copy the coordinates.
+		mat.create(points.length, 1, CvType.CV_32FC2);
+		if (points.length > 0) mat.put(0, 0, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Returns the points of a two channel buffer.
+	 *
+	 * @param buffer
+	 * @param count
+	 * @return Point[]
+	 */
+	public static Point[] points(float[] buffer, int count) {
+		Point[] points = new Point[count];
+		for (int i = 0; i < count; i++) {
+			points[i] = new Point(buffer[i * 2], buffer[i * 2 + 1]);
+		}
+		return points;
+	}
+
+}
@@ -35,6 +35,13 @@ public class Camera {
 	 * @var Boolean
 	 */
 	private Boolean useWebcam;
+	
+	/**
+	 * The index of the webcam device.
+	 *
+	 * @var int
+	 */
+	private int device = 0;
 
 	
 	/**
@@ -44,6 +51,20 @@ public class Camera {
 	 */
 	private VideoCapture capture;
 	
+	/**
+	 * The frame source used instead of a video capture.
+	 *
+	 * @var Source
+	 */
+	private Source frames;
+	
+	/**
+	 * The number of the last capture.
+	 *
+	 * @var long
+	 */
+	private long sequence = 0;
+	
 	/**
 	 * Sets parameters for camera and initialize.
 	 *
@@ -55,17 +76,43 @@ public class Camera {
 		this.source = source;
 		this.useWebcam = webcam;
 		
+		// Decode video files ahead on a separate thread if enabled.
+		if (! webcam && Config.Camera.prefetch) {
+			this.frames = new Playback(source, Config.Camera.prefetchFrames, Config.Camera.throttle);
+			return;
+		}
+		
 		// Initialize camera.
 		this.initialize();
 	}
 	
+	/**
+	 * Sets the webcam device and initialize.
+	 *
+	 * @param device
+	 */
+	public Camera(int device) {
+		this.device = device;
+		this.useWebcam = true;
+		this.initialize();
+	}
+	
+	/**
+	 * Sets the frame source used instead of a video capture.
+	 *
+	 * @param frames
+	 */
+	public Camera(Source frames) {
+		this.frames = frames;
+	}
+	
 	/**
 	 * Initialize the camera.
 	 */
 	public void initialize() {
 		// Create new video capture object.
 		this.capture = useWebcam
-			? new VideoCapture(0)
+			? new VideoCapture(this.device)
 			: new VideoCapture(source);
 		
 		// Set capture width, height and disable focus.
@@ -80,6 +127,18 @@ public class Camera {
 	 * @param destination
 	 */
 	public void capture(Frame destination) {
+		// Number the capture.
+		destination.sequence = ++this.sequence;
+		
+		// Read from the frame source if set.
+		if (this.frames != null) {
+			this.frames.read(destination.getSource());
+			destination.captured = this.frames.captured();
+			destination.nanos = System.nanoTime() - (System.currentTimeMillis() - destination.captured) * 1000000L;
+			destination.position = this.frames.position();
+			return;
+		}
+		
 		// Capture frame from camera and save result.
 		Boolean result = this.capture.read(destination.getSource());
 		
@@ -88,6 +147,11 @@ public class Camera {
 			this.capture.set(Videoio.CAP_PROP_POS_FRAMES, 0);
 			this.capture.read(destination.getSource());
 		}
+		
+		// Save the estimated exposure time and video position of the frame.
+		destination.captured = System.currentTimeMillis() - Config.Camera.captureDelay;
+		destination.nanos = System.nanoTime() - Config.Camera.captureDelay * 1000000L;
+		destination.position = this.capture.get(Videoio.CAP_PROP_POS_MSEC);
 	}
 
 }
@@ -1,7 +1,12 @@
 package sphinx.vision;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Properties;
 
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.MatOfPoint2f;
@@ -34,6 +39,56 @@ public class Cropper {
 	 */
 	private Mat warper;
 	
+	/**
+	 * The reused coordinate buffer of the field corners.
+	 *
+	 * @var float[]
+	 */
+	private float[] buffer;
+	
+	/**
+	 * The sorted field corners the warper was built from, or null.
+	 *
+	 * @var Point[]
+	 */
+	private Point[] corners;
+	
+	/**
+	 * The reused source coordinates of the maps.
+	 *
+	 * @var float[]
+	 */
+	private float[] xs, ys;
+	
+	/**
+	 * The lens intrinsics and distortion as <fx, fy, cx, cy, k1, k2, p1, p2, k3>,
+	 * or null without calibration.
+	 *
+	 * @var double[]
+	 */
+	private double[] lens;
+	
+	/**
+	 * The source pixel of each cropped pixel, undistorted and warped in one map.
+	 *
+	 * @var Mat
+	 */
+	private Mat cropX = new Mat(), cropY = new Mat();
+	
+	/**
+	 * The source pixel of each undistorted pixel, used for detection.
+	 *
+	 * @var Mat
+	 */
+	private Mat undistortX = new Mat(), undistortY = new Mat();
+	
+	/**
+	 * The reused remap destination swapped with the frame source.
+	 *
+	 * @var Mat
+	 */
+	private Mat remapped = new Mat();
+	
 	/**
 	 * The frame with the isolated color.
 	 *
@@ -41,6 +96,36 @@ public class Cropper {
 	 */
 	public Frame frame = new Frame("Red - Cropper");
 	
+	/**
+	 * Creates the cropper without lens correction.
+	 */
+	public Cropper() {
+	}
+	
+	/**
+	 * Creates the cropper with the lens calibration file, if any.
+	 *
+	 * @param calibration
+	 */
+	public Cropper(String calibration) {
+		// Skip if no calibration is configured.
+		if (calibration == null || calibration.isEmpty()) return;
+		
+		// Load the intrinsics and distortion coefficients.
+		try (InputStream input = new FileInputStream(calibration)) {
+			Properties properties = new Properties();
+			properties.load(input);
+			String[] keys = { "fx", "fy", "cx", "cy", "k1", "k2", "p1", "p2", "k3" };
+			this.lens = new double[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				this.lens[i] = Double.parseDouble(properties.getProperty(keys[i], "0").trim());
+			}
+		} catch (IOException | NumberFormatException e) {
+			e.printStackTrace();
+			this.lens = null;
+		}
+	}
+	
 	/**
 	 * Detect the playing area based on camera.
 	 *
@@ -60,8 +145,21 @@ public class Cropper {
 	 * @param frame
 	 */
 	public void detect(Frame frame) {
-		// Convert frame to HSV color space.
-		frame.convertTo(this.frame, Imgproc.COLOR_BGR2HSV);
+		// Convert frame to HSV color space, undistorted first if calibrated.
+		if (this.lens != null) {
+			// Build the undistortion map for the frame size once.
+			Size size = frame.getSource().size();
+			if (this.undistortX.cols() != size.width || this.undistortX.rows() != size.height) {
+				this.buildMap(new double[] { 1, 0, 0, 0, 1, 0, 0, 0, 1 }, size, this.undistortX, this.undistortY);
+			}
+			
+			// Undistort and convert the frame.
+			Imgproc.remap(frame.getSource(), this.frame.getSource(), this.undistortX, this.undistortY, Imgproc.INTER_LINEAR);
+			this.frame.stamp(frame);
+			this.frame.convertTo(this.frame, Imgproc.COLOR_BGR2HSV);
+		} else {
+			frame.convertTo(this.frame, Imgproc.COLOR_BGR2HSV);
+		}
 
 		// Isolate the red colors.
 		this.frame.isolateRange(this.frame,
@@ -82,20 +180,25 @@ public class Cropper {
 		// Skip if field is not rectangle.
 		if (field.total() < 4) return;
 		
-		// Sort the field corners.
-		Point[] corners = this.sortCorners(field.toArray());
+		// Sort the field corners copied in one transfer.
+		this.buffer = Buffers.read(field, this.buffer);
+		Point[] corners = this.sortCorners(Buffers.points(this.buffer, (int) field.total()));
 		
 		// Get the minimum width and height.
 		double[] dimensions = this.getDimensions(corners);
 		
+		// Skip if dimensions is below min percentage, keeping the previous area.
+		if (dimensions[0] < (this.frame.getSource().cols() * Config.Camera.minCropPercent) ||
+			dimensions[1] < (this.frame.getSource().rows() * Config.Camera.minCropPercent)) return;
+		
+		// Keep the warp and maps if the corners did not move.
+		if (this.warper != null && this.isSame(corners)) return;
+		this.corners = corners;
+		
 		// Save dimensions on instance.
 		this.width = dimensions[0];
 		this.height = dimensions[1];
 		
-		// Skip if dimensions is below min percentage.
-		if (this.width < (this.frame.getSource().cols() * Config.Camera.minCropPercent) ||
-			this.height < (this.frame.getSource().rows() * Config.Camera.minCropPercent)) return;
-		
 		// Create warp material for source and destination corners.
 		this.warper = Imgproc.getPerspectiveTransform(
 			new MatOfPoint2f(corners),
@@ -106,6 +209,50 @@ public class Cropper {
 	            new Point(0, this.height - 1)
 			)
 		);
+		
+		// Combine the undistortion with the warp.
+		this.combine();
+	}
+	
+	/**
+	 * Returns whether or not the corners are within the tolerance of the previous ones.
+	 *
+	 * @param corners
+	 * @return boolean
+	 */
+	private boolean isSame(Point[] corners) {
+		// Skip if no previous corners.
+		if (this.corners == null) return false;
+		
+		// Compare each corner with the previous one.
+		for (int i = 0; i < 4; i++) {
+			if (Math.abs(corners[i].x - this.corners[i].x) > Config.Camera.cornerTolerance ||
+				Math.abs(corners[i].y - this.corners[i].y) > Config.Camera.cornerTolerance) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Set the transformation from camera corners to field points on a canvas.
+	 * Used when the camera only sees part of the field.
+	 *
+	 * @param corners
+	 * @param field
+	 * @param size
+	 */
+	public void calibrate(Point[] corners, Point[] field, Size size) {
+		// Create warp material for the camera and field points.
+		this.warper = Imgproc.getPerspectiveTransform(
+			new MatOfPoint2f(corners),
+			new MatOfPoint2f(field)
+		);
+		
+		// Save the canvas size on instance.
+		this.width = size.width;
+		this.height = size.height;
+		
+		// Combine the undistortion with the warp.
+		this.combine();
 	}
 	
 	/**
@@ -117,6 +264,15 @@ public class Cropper {
 		// Skip if warper was not found.
 		if (this.warper == null) return;
 		
+		// Undistort and warp in one pass when calibrated, swapping in the result.
+		if (this.lens != null) {
+			Mat source = frame.getSource();
+			Imgproc.remap(source, this.remapped, this.cropX, this.cropY, Imgproc.INTER_LINEAR);
+			frame.linkSource(this.remapped);
+			this.remapped = source;
+			return;
+		}
+		
         // Warp source to found contour.
         Imgproc.warpPerspective(
     		frame.getSource(), frame.getSource(),
@@ -125,6 +281,71 @@ public class Cropper {
 		);
 	}
 	
+	/**
+	 * Build the combined crop map from the warper when calibrated.
+	 */
+	private void combine() {
+		// Skip without calibration.
+		if (this.lens == null) return;
+		
+		// Find the inverse warp from cropped to undistorted pixels.
+		double[] inverse = new double[9];
+		this.warper.inv().get(0, 0, inverse);
+		
+		// Build the map at the cropped size.
+		this.buildMap(inverse, new Size(Math.round(this.width), Math.round(this.height)), this.cropX, this.cropY);
+	}
+	
+	/**
+	 * Build the source pixel of each destination pixel through the homography
+	 * into undistorted pixels and through the lens model into distorted pixels.
+	 *
+	 * @param homography 3x3 row major from destination to undistorted pixels
+	 * @param size of the destination
+	 * @param mapX
+	 * @param mapY
+	 */
+	private void buildMap(double[] homography, Size size, Mat mapX, Mat mapY) {
+		// Read the lens parameters.
+		double fx = this.lens[0], fy = this.lens[1], cx = this.lens[2], cy = this.lens[3];
+		double k1 = this.lens[4], k2 = this.lens[5], p1 = this.lens[6], p2 = this.lens[7], k3 = this.lens[8];
+		
+		// Size the reused coordinates to the destination.
+		int width = (int) size.width, height = (int) size.height;
+		if (this.xs == null || this.xs.length != width * height) {
+			this.xs = new float[width * height];
+			this.ys = new float[width * height];
+		}
+		float[] xs = this.xs, ys = this.ys;
+		
+		// Loop through every destination pixel.
+		for (int v = 0; v < height; v++) {
+			for (int u = 0; u < width; u++) {
+				// Find the undistorted pixel through the homography.
+				double w = homography[6] * u + homography[7] * v + homography[8];
+				double x = (homography[0] * u + homography[1] * v + homography[2]) / w;
+				double y = (homography[3] * u + homography[4] * v + homography[5]) / w;
+				
+				// Normalize and apply the radial and tangential distortion.
+				double xn = (x - cx) / fx, yn = (y - cy) / fy;
+				double r2 = xn * xn + yn * yn;
+				double radial = 1 + k1 * r2 + k2 * r2 * r2 + k3 * r2 * r2 * r2;
+				double xd = xn * radial + 2 * p1 * xn * yn + p2 * (r2 + 2 * xn * xn);
+				double yd = yn * radial + p1 * (r2 + 2 * yn * yn) + 2 * p2 * xn * yn;
+				
+				// Save the distorted source pixel.
+				xs[v * width + u] = (float) (fx * xd + cx);
+				ys[v * width + u] = (float) (fy * yd + cy);
+			}
+		}
+		
+		// Copy the maps in one transfer each.
+		mapX.create(height, width, CvType.CV_32FC1);
+		mapY.create(height, width, CvType.CV_32FC1);
+		mapX.put(0, 0, xs);
+		mapY.put(0, 0, ys);
+	}
+	
 	/**
 	 * Sort the corners by TL, TR, BR, BL.
 	 *
@@ -226,6 +447,15 @@ public class Cropper {
 		return Diff;
 	}
 	
+	/**
+	 * Returns whether or not a playing area has been found.
+	 *
+	 * @return boolean
+	 */
+	public boolean hasArea() {
+		return this.warper != null;
+	}
+	
 	/**
 	 * Returns if the cropper should detect.
 	 *
@@ -14,6 +14,34 @@ public class Frame extends HasContours {
 	 * @var String
 	 */
 	protected String name = "Untitled Frame";
+	
+	/**
+	 * The millis when the frame source was captured.
+	 *
+	 * @var long
+	 */
+	public long captured = 0;
+	
+	/**
+	 * The increasing number of the capture the source came from.
+	 *
+	 * @var long
+	 */
+	public long sequence = 0;
+	
+	/**
+	 * The monotonic nanos when the frame source was captured.
+	 *
+	 * @var long
+	 */
+	public long nanos = 0;
+	
+	/**
+	 * The video position of the capture in millis, or -1 if unknown.
+	 *
+	 * @var double
+	 */
+	public double position = -1;
 
 	/**
 	 * Frame constructor to set frame name.
@@ -45,6 +73,7 @@ public class Frame extends HasContours {
 	 */
 	public void loadSource(Frame frame) {
 		this.loadSource(frame.getSource());
+		this.stamp(frame);
 	}
 	
 	/**
@@ -59,6 +88,19 @@ public class Frame extends HasContours {
 	 */
 	public void linkSource(Frame frame) {
 		this.linkSource(frame.getSource());
+		this.stamp(frame);
+	}
+	
+	/**
+	 * Copies the capture details of the passed frame.
+	 *
+	 * @param frame
+	 */
+	public void stamp(Frame frame) {
+		this.captured = frame.captured;
+		this.sequence = frame.sequence;
+		this.nanos = frame.nanos;
+		this.position = frame.position;
 	}
 	
 	/**
@@ -97,6 +139,7 @@ public class Frame extends HasContours {
 	public void convertTo(Frame destination, int type) {
 		// Convert the colors into type.
 		Imgproc.cvtColor(this.getSource(), destination.getSource(), type);
+		destination.stamp(this);
 	}
 
 	/**
@@ -108,6 +151,7 @@ public class Frame extends HasContours {
 	public void isolateRange(Frame destination, Scalar lower, Scalar upper) {
 		// Copy contents within range into destination.
 		Core.inRange(this.getSource(), lower, upper, destination.getSource());
+		destination.stamp(this);
 	}
 	
 	/**
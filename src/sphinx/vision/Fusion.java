@@ -0,0 +1,316 @@
+package sphinx.vision;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import sphinx.Config;
+
+public class Fusion implements Source {
+
+	/**
+	 * The size of the shared field canvas.
+	 *
+	 * @var Size
+	 */
+	private Size size;
+
+	/**
+	 * The latest warped frame of each source.
+	 *
+	 * @var Mat[]
+	 */
+	private Mat[] latest;
+
+	/**
+	 * The capture millis of the latest frame of each source.
+	 *
+	 * @var long[]
+	 */
+	private long[] stamps;
+
+	/**
+	 * The capture millis of the oldest frame on the last composed canvas.
+	 *
+	 * @var long
+	 */
+	private long captured = 0;
+
+	/**
+	 * The canvas area covered by each source, found from its first frame.
+	 *
+	 * @var Mat[]
+	 */
+	private Mat[] masks;
+
+	/**
+	 * The canvas area each source is drawn on, with overlaps given to the source seeing them deepest inside its view.
+	 *
+	 * @var Mat[]
+	 */
+	private Mat[] owned;
+
+	/**
+	 * The reused composition holder.
+	 *
+	 * @var Mat
+	 */
+	private Mat warped = new Mat();
+
+	/**
+	 * Creates the fusion of the configured sources and starts capturing.
+	 */
+	public Fusion() {
+		this(Config.Fusion.sources, Config.Fusion.corners, Config.Fusion.field,
+			new Size(Config.Fusion.width, Config.Fusion.height));
+	}
+
+	/**
+	 * Creates the fusion of the sources and starts capturing.
+	 * Sources are webcam indexes or video paths, with their camera corners
+	 * and canvas points as TL, TR, BR, BL x, y pairs.
+	 *
+	 * @param sources
+	 * @param corners
+	 * @param field
+	 * @param size
+	 */
+	public Fusion(String[] sources, double[][] corners, double[][] field, Size size) {
+		this.size = size;
+		this.latest = new Mat[sources.length];
+		this.stamps = new long[sources.length];
+		this.masks = new Mat[sources.length];
+
+		// Start a capture thread per source.
+		for (int i = 0; i < sources.length; i++) {
+			// Open the webcam or video file.
+			Camera camera = sources[i].matches("\\d+")
+				? new Camera(Integer.parseInt(sources[i]))
+				: new Camera(false, sources[i]);
+
+			// Map the camera corners onto the canvas.
+			Cropper cropper = new Cropper();
+			cropper.calibrate(this.points(corners[i]), this.points(field[i]), size);
+
+			// Start capturing.
+			this.latest[i] = new Mat();
+			this.masks[i] = new Mat();
+			Thread thread = new Thread(new Capture(i, camera, cropper), "Capture " + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Compose the latest frames of all sources onto the canvas.
+	 * Each canvas pixel comes from exactly one source, so detections keep
+	 * the colors of a single camera instead of fading where views overlap.
+	 * The canvas counts as captured with its oldest frame, so latency is never underestimated.
+	 *
+	 * @param destination
+	 * @return boolean
+	 */
+	@Override
+	public boolean read(Mat destination) {
+		// Wait for the first frame of every source.
+		for (int i = 0; i < this.latest.length; i++) {
+			while (this.isEmpty(i)) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}
+		}
+
+		// Split the overlaps once the covered areas are known.
+		if (this.owned == null) {
+			this.owned = this.split();
+		}
+
+		// Clear the canvas.
+		destination.create(this.size, CvType.CV_8UC3);
+		destination.setTo(Scalar.all(0));
+
+		// Copy the owned area of each source onto the canvas, keeping the oldest capture time.
+		long oldest = Long.MAX_VALUE;
+		for (int i = 0; i < this.latest.length; i++) {
+			synchronized (this.latest[i]) {
+				this.latest[i].copyTo(this.warped);
+				oldest = Math.min(oldest, this.stamps[i]);
+			}
+			this.warped.copyTo(destination, this.owned[i]);
+		}
+		this.captured = oldest;
+
+		// Return success.
+		return true;
+	}
+
+	/**
+	 * Returns the millis when the oldest frame on the last composed canvas was captured.
+	 *
+	 * @return long
+	 */
+	@Override
+	public long captured() {
+		return this.captured;
+	}
+
+	/**
+	 * Returns -1 as the canvas mixes the positions of several sources.
+	 *
+	 * @return double
+	 */
+	@Override
+	public double position() {
+		return -1;
+	}
+
+	/**
+	 * Returns the canvas area of each source, giving every overlapping pixel to the
+	 * source it lies furthest inside of, so the seam runs through the middle of overlaps.
+	 *
+	 * @return Mat[]
+	 */
+	private Mat[] split() {
+		Mat[] owned = new Mat[this.masks.length];
+		Mat best = new Mat(), distance = new Mat(), deeper = new Mat(), other = new Mat();
+		for (int i = 0; i < this.masks.length; i++) {
+			// Find the distance of each covered pixel to the edge of the view.
+			Imgproc.distanceTransform(this.masks[i], distance, Imgproc.DIST_L2, Imgproc.DIST_MASK_PRECISE);
+			owned[i] = this.masks[i].clone();
+			if (i == 0) {
+				distance.copyTo(best);
+				continue;
+			}
+
+			// Take the pixels this source sees deeper than the previous ones.
+			Core.compare(distance, best, deeper, Core.CMP_GT);
+			Core.bitwise_and(deeper, this.masks[i], owned[i]);
+			Core.bitwise_not(owned[i], other);
+			for (int k = 0; k < i; k++) {
+				Core.bitwise_and(owned[k], other, owned[k]);
+			}
+			Core.max(best, distance, best);
+		}
+		return owned;
+	}
+
+	/**
+	 * Returns whether or not the source has not delivered a frame yet.
+	 *
+	 * @param index
+	 * @return boolean
+	 */
+	private boolean isEmpty(int index) {
+		synchronized (this.latest[index]) {
+			return this.latest[index].empty();
+		}
+	}
+
+	/**
+	 * Returns the points of x, y pairs.
+	 *
+	 * @param pairs
+	 * @return Point[]
+	 */
+	private Point[] points(double[] pairs) {
+		Point[] points = new Point[pairs.length / 2];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Point(pairs[i * 2], pairs[i * 2 + 1]);
+		}
+		return points;
+	}
+
+	/**
+	 * Capture loop of one source warping frames onto the canvas.
+	 */
+	private class Capture implements Runnable {
+
+		/**
+		 * The index of the source.
+		 *
+		 * @var int
+		 */
+		private int index;
+
+		/**
+		 * The camera of the source.
+		 *
+		 * @var Camera
+		 */
+		private Camera camera;
+
+		/**
+		 * The transformation onto the canvas.
+		 *
+		 * @var Cropper
+		 */
+		private Cropper cropper;
+
+		/**
+		 * Saves the source on the instance.
+		 *
+		 * @param index
+		 * @param camera
+		 * @param cropper
+		 */
+		public Capture(int index, Camera camera, Cropper cropper) {
+			this.index = index;
+			this.camera = camera;
+			this.cropper = cropper;
+		}
+
+		/**
+		 * Capture and publish frames until the program ends.
+		 */
+		@Override
+		public void run() {
+			Frame frame = new Frame("Source " + this.index);
+			long period = 1000 / Config.Fusion.fps;
+			while (true) {
+				// Capture the frame, waiting a frame period before retrying if failed.
+				long start = System.currentTimeMillis();
+				this.camera.capture(frame);
+				if (frame.getSource().empty()) {
+					try {
+						Thread.sleep(period);
+					} catch (InterruptedException e) {
+						return;
+					}
+					continue;
+				}
+
+				// Find the covered canvas area from the first frame.
+				if (masks[this.index].empty()) {
+					Frame mask = new Frame("Mask");
+					mask.linkSource(new Mat(frame.getSource().size(), CvType.CV_8UC1, Scalar.all(255)));
+					this.cropper.crop(mask);
+					mask.getSource().copyTo(masks[this.index]);
+				}
+
+				// Warp the frame onto the canvas and publish it with its capture time,
+				// which already excludes the capture delay of webcams.
+				this.cropper.crop(frame);
+				synchronized (latest[this.index]) {
+					frame.getSource().copyTo(latest[this.index]);
+					stamps[this.index] = frame.captured;
+				}
+
+				// Keep video files at the frame rate.
+				try {
+					Thread.sleep(Math.max(0, period - (System.currentTimeMillis() - start)));
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+	}
+
+}
@@ -2,8 +2,10 @@ package sphinx.vision;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.core.MatOfPoint2f;
@@ -19,6 +21,13 @@ abstract public class HasContours {
 	 */
 	protected Mat source = new Mat();
 	
+	/**
+	 * The reused float copy of the last converted contour.
+	 *
+	 * @var MatOfPoint2f
+	 */
+	private MatOfPoint2f contour2f = new MatOfPoint2f();
+	
 	/**
 	 * Returns a list of contours on the frame.
 	 *
@@ -59,16 +68,18 @@ abstract public class HasContours {
 		// Get contours from current frame.
 		List<MatOfPoint> contours = this.getContours(method, hierarchy);
 		
+		// Find the area of each contour once.
+		final IdentityHashMap<MatOfPoint, Double> areas = new IdentityHashMap<MatOfPoint, Double>();
+		for (MatOfPoint contour : contours) {
+			areas.put(contour, Imgproc.contourArea(contour));
+		}
+		
 		// Sort the contours by area.
 		contours.sort(new Comparator<MatOfPoint>() {
 		    @Override
 		    public int compare(MatOfPoint a, MatOfPoint b) {
-				// Find area of two contours.
-				Double aArea = Imgproc.contourArea((Mat) a);
-				Double bArea = Imgproc.contourArea((Mat) b);
-				
-				// Return comparison.
-				return bArea.compareTo(aArea);
+				// Return comparison of the two areas.
+				return areas.get(b).compareTo(areas.get(a));
 		    }
 		});
 		
@@ -102,15 +113,17 @@ abstract public class HasContours {
 	 * @return MatOfPoint2f
 	 */
 	public MatOfPoint2f approximate(MatOfPoint contour) {
+		// Convert the contour to floats without leaving native memory.
+		contour.convertTo(this.contour2f, CvType.CV_32F);
+		
 		// Calculate contour epsilon.
-		MatOfPoint2f contour2f = new MatOfPoint2f(contour.toArray());
-		double epsilon = .1 * Imgproc.arcLength(contour2f, true);
+		double epsilon = .1 * Imgproc.arcLength(this.contour2f, true);
 		
 		// Prepare approx holder variable.
 		MatOfPoint2f approx = new MatOfPoint2f();
 		
 		// Approximate the contour poly.
-		Imgproc.approxPolyDP(new MatOfPoint2f(contour.toArray()), approx, epsilon, true);
+		Imgproc.approxPolyDP(this.contour2f, approx, epsilon, true);
 
 		// Return the approximated poly.
 		return approx;
@@ -124,11 +137,11 @@ abstract public class HasContours {
 	 */
 	public RotatedRect contourToRect(MatOfPoint point)
 	{
-		// Convert point to 2f object.
-		MatOfPoint2f points = new MatOfPoint2f(point.toArray());
+		// Convert point to 2f object without leaving native memory.
+		point.convertTo(this.contour2f, CvType.CV_32F);
 		
 		// Find and return the min area rect.
-		return Imgproc.minAreaRect(points);
+		return Imgproc.minAreaRect(this.contour2f);
 	}
 
 }
@@ -0,0 +1,287 @@
+package sphinx.vision;
+
+import java.util.Arrays;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import sphinx.Config;
+
+public class Overlay {
+
+	/**
+	 * The static layer of the safe distance lines, drawn once per frame size.
+	 */
+	public static class Layer {
+
+		/**
+		 * The drawn lines.
+		 *
+		 * @var Mat
+		 */
+		private Mat image = new Mat();
+
+		/**
+		 * The pixels covered by the lines.
+		 *
+		 * @var Mat
+		 */
+		private Mat mask = new Mat();
+
+		/**
+		 * The frame size the layer was drawn for.
+		 *
+		 * @var int
+		 */
+		private int width = -1, height = -1;
+
+		/**
+		 * Copy the lines onto the frame, redrawing the layer when the frame size changed.
+		 *
+		 * @param frame
+		 */
+		public void apply(Mat frame) {
+			if (frame.cols() != this.width || frame.rows() != this.height || frame.type() != this.image.type()) {
+				this.build(frame.cols(), frame.rows(), frame.type());
+			}
+			this.image.copyTo(frame, this.mask);
+		}
+
+		/**
+		 * Draw the wall and corner unsafe distances into the layer and the mask.
+		 *
+		 * @param width
+		 * @param height
+		 * @param type
+		 */
+		private void build(int width, int height, int type) {
+			// Record the lines in drawing order.
+			Overlay lines = new Overlay();
+			int wallDist = Config.Client.wallSafeDistance;
+			lines.line(0, wallDist, width, wallDist, WALL);
+			lines.line(0, height-wallDist, width, height-wallDist, WALL);
+			lines.line(wallDist, 0, wallDist, height, WALL);
+			lines.line(width-wallDist, 0, width-wallDist, height, WALL);
+
+			int cornerDist = Config.Client.cornerSafeDistance;
+			lines.line(cornerDist, 0, cornerDist, cornerDist, CORNER);
+			lines.line(0, cornerDist, cornerDist, cornerDist, CORNER);
+			lines.line(width-cornerDist, 0, width-cornerDist, cornerDist, CORNER);
+			lines.line(width, cornerDist, width-cornerDist, cornerDist, CORNER);
+			lines.line(cornerDist, height, cornerDist, height-cornerDist, CORNER);
+			lines.line(0, height-cornerDist, cornerDist, height-cornerDist, CORNER);
+			lines.line(width, height-cornerDist, width-cornerDist, height-cornerDist, CORNER);
+			lines.line(width-cornerDist, height, width-cornerDist, height-cornerDist, CORNER);
+
+			// Draw the lines, and mark their pixels in the mask.
+			this.image.create(height, width, type);
+			this.image.setTo(Scalar.all(0));
+			this.mask.create(height, width, CvType.CV_8UC1);
+			this.mask.setTo(Scalar.all(0));
+			lines.render(this.image);
+			lines.render(this.mask, Scalar.all(255));
+
+			this.width = width;
+			this.height = height;
+		}
+
+	}
+
+	/**
+	 * The command kinds.
+	 *
+	 * @var int
+	 */
+	private static final int CIRCLE = 0, LINE = 1, ARROW = 2;
+
+	/**
+	 * The values stored per command.
+	 *
+	 * @var int
+	 */
+	private static final int STRIDE = 5;
+
+	/**
+	 * The colors of the safe distance lines.
+	 *
+	 * @var Scalar
+	 */
+	private static final Scalar WALL = new Scalar(175, 175, 175), CORNER = new Scalar(255, 255, 255);
+
+	/**
+	 * The kinds of the commands.
+	 *
+	 * @var int[]
+	 */
+	private int[] kinds = new int[64];
+
+	/**
+	 * The coordinates, radius or end point, and thickness of the commands.
+	 *
+	 * @var double[]
+	 */
+	private double[] values = new double[64 * STRIDE];
+
+	/**
+	 * The colors of the commands, expected to be constants.
+	 *
+	 * @var Scalar[]
+	 */
+	private Scalar[] colors = new Scalar[64];
+
+	/**
+	 * The amount of recorded commands.
+	 *
+	 * @var int
+	 */
+	private int count = 0;
+
+	/**
+	 * The points reused while rasterizing.
+	 *
+	 * @var Point
+	 */
+	private Point from = new Point(), to = new Point();
+
+	/**
+	 * Forget the recorded commands, keeping their storage.
+	 */
+	public void clear() {
+		this.count = 0;
+	}
+
+	/**
+	 * Record a circle, filled when the thickness is negative.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param color
+	 * @param thickness
+	 */
+	public void circle(double x, double y, double radius, Scalar color, int thickness) {
+		this.add(CIRCLE, x, y, radius, 0, color, thickness);
+	}
+
+	/**
+	 * Record a circle around the point.
+	 *
+	 * @param center
+	 * @param radius
+	 * @param color
+	 * @param thickness
+	 */
+	public void circle(Point center, double radius, Scalar color, int thickness) {
+		this.add(CIRCLE, center.x, center.y, radius, 0, color, thickness);
+	}
+
+	/**
+	 * Record a one pixel line.
+	 *
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param color
+	 */
+	public void line(double x1, double y1, double x2, double y2, Scalar color) {
+		this.add(LINE, x1, y1, x2, y2, color, 1);
+	}
+
+	/**
+	 * Record a one pixel line between the points.
+	 *
+	 * @param from
+	 * @param to
+	 * @param color
+	 */
+	public void line(Point from, Point to, Scalar color) {
+		this.add(LINE, from.x, from.y, to.x, to.y, color, 1);
+	}
+
+	/**
+	 * Record a one pixel arrow between the points.
+	 *
+	 * @param from
+	 * @param to
+	 * @param color
+	 */
+	public void arrow(Point from, Point to, Scalar color) {
+		this.add(ARROW, from.x, from.y, to.x, to.y, color, 1);
+	}
+
+	/**
+	 * Draw the commands onto the frame in recorded order.
+	 *
+	 * @param frame
+	 */
+	public void render(Mat frame) {
+		this.render(frame, null);
+	}
+
+	/**
+	 * Draw the commands onto the frame, in the color if set.
+	 *
+	 * @param frame
+	 * @param color
+	 */
+	private void render(Mat frame, Scalar color) {
+		for (int i = 0; i < this.count; i++) {
+			int offset = i * STRIDE;
+			Scalar paint = color != null ? color : this.colors[i];
+			int thickness = (int) this.values[offset + 4];
+			this.from.x = this.values[offset];
+			this.from.y = this.values[offset + 1];
+			switch (this.kinds[i]) {
+				case CIRCLE:
+					Imgproc.circle(frame, this.from, (int) Math.round(this.values[offset + 2]), paint, thickness);
+					break;
+				case LINE:
+					this.to.x = this.values[offset + 2];
+					this.to.y = this.values[offset + 3];
+					Imgproc.line(frame, this.from, this.to, paint, thickness);
+					break;
+				case ARROW:
+					this.to.x = this.values[offset + 2];
+					this.to.y = this.values[offset + 3];
+					Imgproc.arrowedLine(frame, this.from, this.to, paint, thickness);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Store the command, growing the storage when full.
+	 *
+	 * @param kind
+	 * @param a
+	 * @param b
+	 * @param c
+	 * @param d
+	 * @param color
+	 * @param thickness
+	 */
+	private void add(int kind, double a, double b, double c, double d, Scalar color, int thickness) {
+		// Double the storage when full.
+		if (this.count == this.kinds.length) {
+			this.kinds = Arrays.copyOf(this.kinds, this.count * 2);
+			this.values = Arrays.copyOf(this.values, this.count * 2 * STRIDE);
+			this.colors = Arrays.copyOf(this.colors, this.count * 2);
+		}
+
+		// Store the values.
+		int offset = this.count * STRIDE;
+		this.kinds[this.count] = kind;
+		this.values[offset] = a;
+		this.values[offset + 1] = b;
+		this.values[offset + 2] = c;
+		this.values[offset + 3] = d;
+		this.values[offset + 4] = thickness;
+		this.colors[this.count] = color;
+		this.count++;
+	}
+
+}
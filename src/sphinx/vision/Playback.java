@@ -0,0 +1,202 @@
+package sphinx.vision;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+import sphinx.Config;
+
+public class Playback implements Source, Runnable {
+
+	/**
+	 * The decoded video file.
+	 *
+	 * @var VideoCapture
+	 */
+	private VideoCapture capture;
+
+	/**
+	 * The frames ready to be decoded into.
+	 *
+	 * @var ArrayBlockingQueue<Decoded>
+	 */
+	private ArrayBlockingQueue<Decoded> free;
+
+	/**
+	 * The decoded frames in playing order.
+	 *
+	 * @var ArrayBlockingQueue<Decoded>
+	 */
+	private ArrayBlockingQueue<Decoded> decoded;
+
+	/**
+	 * The millis between frames when throttled, or 0 for unthrottled.
+	 *
+	 * @var double
+	 */
+	private double period = 0;
+
+	/**
+	 * The millis when the next frame is due.
+	 *
+	 * @var double
+	 */
+	private double due = 0;
+
+	/**
+	 * The estimated capture millis of the last frame handed out.
+	 *
+	 * @var long
+	 */
+	private long captured = 0;
+
+	/**
+	 * The video position of the last frame handed out.
+	 *
+	 * @var double
+	 */
+	private double position = -1;
+
+	/**
+	 * The amount of times the file was restarted.
+	 *
+	 * @var int
+	 */
+	public volatile int loops = 0;
+
+	/**
+	 * Opens the video file and starts decoding ahead.
+	 *
+	 * @param path
+	 * @param frames amount of frames decoded ahead
+	 * @param throttle whether or not to play at the native fps
+	 */
+	public Playback(String path, int frames, boolean throttle) {
+		// Open the file and find the native rate.
+		this.capture = new VideoCapture(path);
+		double fps = this.capture.get(Videoio.CAP_PROP_FPS);
+		if (throttle && fps > 0) {
+			this.period = 1000 / fps;
+		}
+
+		// Fill the pool with empty frames.
+		this.free = new ArrayBlockingQueue<Decoded>(frames);
+		this.decoded = new ArrayBlockingQueue<Decoded>(frames);
+		for (int i = 0; i < frames; i++) {
+			this.free.add(new Decoded());
+		}
+
+		// Start the decoder.
+		Thread thread = new Thread(this, "Playback");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Copies the next decoded frame into the destination.
+	 * Waits for the frame to be due when throttled, and stamps it like a direct capture.
+	 *
+	 * @param destination
+	 * @return boolean
+	 */
+	@Override
+	public boolean read(Mat destination) {
+		try {
+			// Wait for the next decoded frame.
+			Decoded frame = this.decoded.take();
+
+			// Wait until the frame is due.
+			if (this.period > 0) {
+				long now = System.currentTimeMillis();
+				if (this.due < now - this.period) this.due = now;
+				if (this.due > now) Thread.sleep((long) (this.due - now));
+				this.due += this.period;
+			}
+
+			// Save the estimated exposure time and video position of the frame.
+			this.captured = System.currentTimeMillis() - Config.Camera.captureDelay;
+			this.position = frame.position;
+
+			// Copy and return the frame to the pool.
+			frame.image.copyTo(destination);
+			this.free.put(frame);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the estimated capture millis of the last frame handed out.
+	 *
+	 * @return long
+	 */
+	@Override
+	public long captured() {
+		return this.captured;
+	}
+
+	/**
+	 * Returns the video position of the last frame handed out.
+	 *
+	 * @return double
+	 */
+	@Override
+	public double position() {
+		return this.position;
+	}
+
+	/**
+	 * Decode frames ahead, restarting the file at the end.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				// Wait for a free frame and decode into it.
+				Decoded frame = this.free.take();
+				if (! this.capture.read(frame.image)) {
+					// Restart the file, skipping if it has no frames.
+					this.capture.set(Videoio.CAP_PROP_POS_FRAMES, 0);
+					this.loops++;
+					if (! this.capture.read(frame.image)) {
+						this.free.put(frame);
+						Thread.sleep(100);
+						continue;
+					}
+				}
+
+				// Queue the decoded frame with its video position.
+				frame.position = this.capture.get(Videoio.CAP_PROP_POS_MSEC);
+				this.decoded.put(frame);
+			}
+		} catch (InterruptedException e) {
+			this.capture.release();
+		}
+	}
+
+	/**
+	 * Pooled frame holder keeping the video position of the decoded frame.
+	 */
+	private static class Decoded {
+
+		/**
+		 * The decoded frame.
+		 *
+		 * @var Mat
+		 */
+		public Mat image = new Mat();
+
+		/**
+		 * The video position of the decoded frame in millis.
+		 *
+		 * @var double
+		 */
+		public double position = -1;
+
+	}
+
+}
@@ -0,0 +1,231 @@
+package sphinx.vision;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.videoio.VideoWriter;
+
+import sphinx.Config;
+import sphinx.Logger;
+
+public class Recorder implements Runnable {
+
+	/**
+	 * The pair marking the end of the recording.
+	 *
+	 * @var Mat[]
+	 */
+	private static final Mat[] end = new Mat[0];
+
+	/**
+	 * The frame pairs ready to be filled as <raw, annotated>.
+	 *
+	 * @var ArrayBlockingQueue<Mat[]>
+	 */
+	private ArrayBlockingQueue<Mat[]> free = new ArrayBlockingQueue<Mat[]>(Config.Recorder.poolSize);
+
+	/**
+	 * The filled frame pairs waiting to be encoded.
+	 *
+	 * @var ArrayBlockingQueue<Mat[]>
+	 */
+	private ArrayBlockingQueue<Mat[]> filled = new ArrayBlockingQueue<Mat[]>(Config.Recorder.poolSize + 1);
+
+	/**
+	 * The pair holding the raw frame until annotated.
+	 *
+	 * @var Mat[]
+	 */
+	private Mat[] pending;
+
+	/**
+	 * The path prefix of the video files.
+	 *
+	 * @var String
+	 */
+	private String path;
+
+	/**
+	 * The raw and annotated video writers.
+	 *
+	 * @var VideoWriter
+	 */
+	private VideoWriter raw, annotated;
+
+	/**
+	 * The sizes the writers were opened with.
+	 *
+	 * @var Size
+	 */
+	private Size rawSize, annotatedSize;
+
+	/**
+	 * The encoding thread.
+	 *
+	 * @var Thread
+	 */
+	private Thread thread;
+
+	/**
+	 * The amount of encoded frames.
+	 *
+	 * @var AtomicLong
+	 */
+	public AtomicLong written = new AtomicLong();
+
+	/**
+	 * The amount of frames dropped because the encoder fell behind.
+	 *
+	 * @var AtomicLong
+	 */
+	public AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Creates the recorder writing to files starting with the path.
+	 *
+	 * @param path
+	 */
+	public Recorder(String path) {
+		this.path = path;
+
+		// Fill the pool with empty pairs.
+		for (int i = 0; i < Config.Recorder.poolSize; i++) {
+			this.free.add(new Mat[] { new Mat(), new Mat() });
+		}
+	}
+
+	/**
+	 * Start the encoding thread.
+	 */
+	public void start() {
+		this.thread = new Thread(this, "Recorder");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Copy the raw frame into a pooled pair, or drop it if none is free.
+	 *
+	 * @param frame
+	 */
+	public void begin(Frame frame) {
+		// Reuse the pair of an unfinished frame.
+		if (this.pending == null) {
+			this.pending = this.free.poll();
+		}
+
+		// Take the oldest queued pair if allowed.
+		if (this.pending == null && Config.Recorder.dropOldest) {
+			this.pending = this.filled.poll();
+			if (this.pending == end) {
+				this.filled.offer(end);
+				this.pending = null;
+			}
+			if (this.pending != null) this.dropped.incrementAndGet();
+		}
+
+		// Drop the frame when still missing a pair.
+		if (this.pending == null) {
+			this.dropped.incrementAndGet();
+			return;
+		}
+
+		// Copy the raw frame.
+		frame.getSource().copyTo(this.pending[0]);
+	}
+
+	/**
+	 * Copy the annotated frame and queue the pair for encoding.
+	 *
+	 * @param frame
+	 */
+	public void finish(Frame frame) {
+		// Skip if the raw frame was dropped.
+		if (this.pending == null) return;
+
+		// Copy the annotated frame and queue the pair.
+		frame.getSource().copyTo(this.pending[1]);
+		this.filled.offer(this.pending);
+		this.pending = null;
+	}
+
+	/**
+	 * Stop after encoding the queued frames and close the files.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void stop() throws InterruptedException {
+		this.filled.put(end);
+		this.thread.join();
+	}
+
+	/**
+	 * Encode the queued pairs until stopped.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				// Wait for the next pair and stop at the end.
+				Mat[] pair = this.filled.take();
+				if (pair == end) break;
+
+				// Open the writers at the size of the first pair.
+				if (this.raw == null) {
+					this.rawSize = pair[0].size();
+					this.annotatedSize = pair[1].size();
+					this.raw = this.open("-raw.avi", this.rawSize);
+					this.annotated = this.open("-annotated.avi", this.annotatedSize);
+				}
+
+				// Encode and return the pair to the pool.
+				this.write(this.raw, pair[0], this.rawSize);
+				this.write(this.annotated, pair[1], this.annotatedSize);
+				this.written.incrementAndGet();
+				this.free.offer(pair);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// Close the files.
+			if (this.raw != null) this.raw.release();
+			if (this.annotated != null) this.annotated.release();
+			Logger.info(String.format("Recorded %d frames to %s, dropped %d",
+				this.written.get(), this.path, this.dropped.get()
+			));
+		}
+	}
+
+	/**
+	 * Returns a motion jpeg writer of the size.
+	 *
+	 * @param suffix
+	 * @param size
+	 * @return VideoWriter
+	 */
+	private VideoWriter open(String suffix, Size size) {
+		return new VideoWriter(
+			this.path + suffix, VideoWriter.fourcc('M', 'J', 'P', 'G'),
+			Config.Recorder.fps, size, true
+		);
+	}
+
+	/**
+	 * Write the frame, resizing it if the crop area changed.
+	 *
+	 * @param writer
+	 * @param frame
+	 * @param size
+	 */
+	private void write(VideoWriter writer, Mat frame, Size size) {
+		// Resize the frame if it changed.
+		if (frame.cols() != size.width || frame.rows() != size.height) {
+			Imgproc.resize(frame, frame, size);
+		}
+		writer.write(frame);
+	}
+
+}
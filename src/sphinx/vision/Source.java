@@ -0,0 +1,29 @@
+package sphinx.vision;
+
+import org.opencv.core.Mat;
+
+public interface Source {
+
+	/**
+	 * Reads the next frame into the passed destination.
+	 *
+	 * @param destination
+	 * @return boolean
+	 */
+	public boolean read(Mat destination);
+
+	/**
+	 * Returns the millis when the last read frame was captured.
+	 *
+	 * @return long
+	 */
+	public long captured();
+
+	/**
+	 * Returns the video position of the last read frame in millis, or -1 if unknown.
+	 *
+	 * @return double
+	 */
+	public double position();
+
+}